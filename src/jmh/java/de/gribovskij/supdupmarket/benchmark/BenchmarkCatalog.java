@@ -0,0 +1,81 @@
+package de.gribovskij.supdupmarket.benchmark;
+
+import de.gribovskij.supdupmarket.MarketService;
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.ProductGroup;
+import de.gribovskij.supdupmarket.ProductGroupRegistry;
+import de.gribovskij.supdupmarket.csv.CSVProductGenerator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seeded products for the benchmarks, so every run and release measures the
+ * same catalog.
+ *
+ * <p>
+ * The products are created by
+ * {@link CSVProductGenerator#withMarketTemplates(long, LocalDate)} for the
+ * cheese, wine and meat groups of the {@link MarketService}.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public final class BenchmarkCatalog {
+
+    public static final long SEED = 20240301L;
+
+    private static final ProductGroupRegistry MARKET_GROUPS = MarketService.createProductGroups();
+
+    public static final ProductGroup CHEESE = MARKET_GROUPS.getProductGroup("Cheese");
+
+    public static final ProductGroup WINE = MARKET_GROUPS.getProductGroup("Wine");
+
+    public static final ProductGroup MEAT = MARKET_GROUPS.getProductGroup("Meat");
+
+    public static final List<ProductGroup> PRODUCT_GROUPS = MARKET_GROUPS.getProductGroups();
+
+    private BenchmarkCatalog() {
+    }
+
+    /**
+     * Returns the generator of the benchmark products.
+     *
+     * @param storeDate the date the products are stored; the expiry dates are
+     * relative to it
+     * @return the generator
+     */
+    public static CSVProductGenerator generator(LocalDate storeDate) {
+        return CSVProductGenerator.withMarketTemplates(SEED, storeDate);
+    }
+
+    /**
+     * Creates the given number of products, stored on the given date.
+     *
+     * @param size the number of products
+     * @param storeDate the date the products are stored
+     * @return the products
+     */
+    public static List<Product> products(int size, LocalDate storeDate) {
+        List<Product> products = new ArrayList<>(size);
+        generator(storeDate).generateProductRows(size,
+                (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> {
+                    Product product = new Product(name, basePrice, LocalDate.ofEpochDay(expiryEpochDay), startQuality,
+                            productGroupName, group(productGroupName));
+                    product.setStoreDate(storeDate);
+                    products.add(product);
+                });
+        return products;
+    }
+
+    /**
+     * Returns the benchmark group with the given name.
+     *
+     * @param name the name of the group
+     * @return the group
+     * @throws IllegalArgumentException if there is no group with the name
+     */
+    public static ProductGroup group(String name) {
+        return MARKET_GROUPS.getProductGroup(name);
+    }
+
+}
@@ -0,0 +1,91 @@
+package de.gribovskij.supdupmarket.benchmark;
+
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.csv.CSVExporter;
+import de.gribovskij.supdupmarket.csv.CSVImporter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures reading and writing a CSV file of {@code size} products. The rows
+ * per second are {@code size} divided by the time of one operation. Reading
+ * the file through OpenCSV is the baseline of the reflection free parser.
+ *
+ * @author Eugen Gribovskij
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CSVBenchmark {
+
+    private static final LocalDate STORE_DATE = LocalDate.of(2024, 3, 1);
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    private Path directory;
+
+    private Path importFile;
+
+    private Path exportFile;
+
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void writeImportFile() throws IOException {
+        directory = Files.createTempDirectory("csv-benchmark");
+        importFile = directory.resolve("import.csv");
+        exportFile = directory.resolve("export.csv");
+        BenchmarkCatalog.generator(STORE_DATE).writeProductsToCSV(importFile.toString(), size);
+        products = BenchmarkCatalog.products(size, STORE_DATE);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(importFile);
+        Files.deleteIfExists(exportFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long importProducts(Blackhole blackhole) {
+        return CSVImporter.importProductRowsFromCSV(importFile.toString(),
+                (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> {
+                    blackhole.consume(name);
+                    blackhole.consume(basePrice + expiryEpochDay + startQuality + storeEpochDay);
+                    blackhole.consume(productGroupName);
+                });
+    }
+
+    @Benchmark
+    public long importProductsWithOpenCSV(Blackhole blackhole) {
+        return CSVImporter.importProductsFromCSV(importFile.toString(), blackhole::consume);
+    }
+
+    @Benchmark
+    public long exportProducts() throws IOException {
+        return CSVExporter.writeShelfProductsToCSV(exportFile.toString(), products.iterator());
+    }
+
+}
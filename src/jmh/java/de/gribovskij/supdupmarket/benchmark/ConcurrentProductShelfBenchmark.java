@@ -0,0 +1,243 @@
+package de.gribovskij.supdupmarket.benchmark;
+
+import de.gribovskij.supdupmarket.ConcurrentProductShelf;
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.ProductGroup;
+import de.gribovskij.supdupmarket.ProductKey;
+import de.gribovskij.supdupmarket.ProductRuleSet;
+import de.gribovskij.supdupmarket.ProductShelf;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Measures the contention of a shelf shared by 1 to 64 threads.
+ *
+ * <p>
+ * Every thread mixes the operations of the market: 60% batch lookups, 39%
+ * sales of a product which is restocked right away, and 1% consistent
+ * snapshots and sweeps of the whole shelf. The {@link ConcurrentProductShelf}
+ * is compared to a {@link ProductShelf} behind one global lock. The products
+ * are either the cheese, wine and meat products of the market or spread over
+ * 16 synthetic groups. Every benchmark method runs with another number of
+ * threads; a single one is selected with e.g.
+ * {@code ConcurrentProductShelfBenchmark.threads16}.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentProductShelfBenchmark {
+
+    private static final LocalDate STORE_DATE = LocalDate.of(2024, 3, 1);
+
+    private static final int GROUPS = 16;
+
+    private static final int PRODUCTS_PER_GROUP = 1000;
+
+    @Param({"globalLock", "striped"})
+    private String shelfType;
+
+    @Param({"market", "synthetic"})
+    private String catalog;
+
+    private List<Product> products;
+
+    private SharedShelf shelf;
+
+    /**
+     * The operations of the benchmark on one shelf implementation.
+     */
+    private interface SharedShelf {
+
+        void addProduct(Product product);
+
+        boolean removeProduct(Product product);
+
+        List<Product> findProducts(ProductKey key);
+
+        List<Product> getStoredProducts();
+
+        List<Product> removeExpiredProducts();
+    }
+
+    /**
+     * The random operations of one thread.
+     */
+    @State(Scope.Thread)
+    public static class Operations {
+
+        private SplittableRandom random;
+
+        @Setup
+        public void setUp(ThreadParams threadParams) {
+            random = new SplittableRandom(threadParams.getThreadIndex());
+        }
+    }
+
+    @Setup
+    public void fillShelf() {
+        products = catalog.equals("market")
+                ? BenchmarkCatalog.products(GROUPS * PRODUCTS_PER_GROUP, STORE_DATE)
+                : createProducts();
+        shelf = shelfType.equals("striped") ? stripedShelf() : globalLockShelf();
+        for (Product product : products) {
+            shelf.addProduct(product);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object threads01(Operations operations) {
+        return operate(operations.random);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Object threads02(Operations operations) {
+        return operate(operations.random);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object threads04(Operations operations) {
+        return operate(operations.random);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object threads08(Operations operations) {
+        return operate(operations.random);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object threads16(Operations operations) {
+        return operate(operations.random);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Object threads32(Operations operations) {
+        return operate(operations.random);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object threads64(Operations operations) {
+        return operate(operations.random);
+    }
+
+    private Object operate(SplittableRandom random) {
+        Product product = products.get(random.nextInt(products.size()));
+        int operation = random.nextInt(100);
+        if (operation < 60) {
+            return shelf.findProducts(ProductKey.of(product));
+        } else if (operation < 99) {
+            // Only the thread which sold the product restocks it
+            if (shelf.removeProduct(product)) {
+                shelf.addProduct(product);
+                return Boolean.TRUE;
+            }
+            return Boolean.FALSE;
+        } else if ((product.getId() & 1) == 0) {
+            return shelf.getStoredProducts();
+        } else {
+            return shelf.removeExpiredProducts();
+        }
+    }
+
+    // Products of many groups with the cheese rules, the same number per group
+    private static List<Product> createProducts() {
+        ProductRuleSet cheeseRules = BenchmarkCatalog.CHEESE.getProductRule();
+        List<Product> products = new ArrayList<>();
+        for (int group = 0; group < GROUPS; group++) {
+            ProductGroup productGroup = new ProductGroup("Group " + group, "Gruppe " + group, cheeseRules);
+            for (int index = 0; index < PRODUCTS_PER_GROUP; index++) {
+                products.add(new Product("Product " + index / 10, 1000, STORE_DATE.plusDays(30 + index % 10), 80,
+                        productGroup.getName(), productGroup));
+            }
+        }
+        return products;
+    }
+
+    private static SharedShelf globalLockShelf() {
+        ProductShelf shelf = new ProductShelf(List.of());
+        return new SharedShelf() {
+            @Override
+            public synchronized void addProduct(Product product) {
+                shelf.addProduct(product, STORE_DATE);
+            }
+
+            @Override
+            public synchronized boolean removeProduct(Product product) {
+                return shelf.removeProduct(product.getId()) != null;
+            }
+
+            @Override
+            public synchronized List<Product> findProducts(ProductKey key) {
+                return shelf.findProducts(key);
+            }
+
+            @Override
+            public synchronized List<Product> getStoredProducts() {
+                return shelf.getStoredProducts();
+            }
+
+            @Override
+            public synchronized List<Product> removeExpiredProducts() {
+                return shelf.removeExpiredProducts(STORE_DATE);
+            }
+        };
+    }
+
+    private static SharedShelf stripedShelf() {
+        ConcurrentProductShelf shelf = new ConcurrentProductShelf();
+        return new SharedShelf() {
+            @Override
+            public void addProduct(Product product) {
+                shelf.addProduct(product, STORE_DATE);
+            }
+
+            @Override
+            public boolean removeProduct(Product product) {
+                return shelf.removeProduct(product);
+            }
+
+            @Override
+            public List<Product> findProducts(ProductKey key) {
+                return shelf.findProducts(key);
+            }
+
+            @Override
+            public List<Product> getStoredProducts() {
+                return shelf.getStoredProducts();
+            }
+
+            @Override
+            public List<Product> removeExpiredProducts() {
+                return shelf.removeExpiredProducts(STORE_DATE);
+            }
+        };
+    }
+
+}
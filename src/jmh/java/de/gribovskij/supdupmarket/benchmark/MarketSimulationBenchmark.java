@@ -0,0 +1,75 @@
+package de.gribovskij.supdupmarket.benchmark;
+
+import de.gribovskij.supdupmarket.MarketService;
+import de.gribovskij.supdupmarket.report.ReportSink;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a full {@link MarketService#startMarketSimulation} run. The report
+ * is rendered completely but written to {@link ReportSink#none()}, so the
+ * console does not distort the result.
+ *
+ * @author Eugen Gribovskij
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MarketSimulationBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"30"})
+    private int numberOfDays;
+
+    private LocalDate startDate;
+
+    private Path productFile;
+
+    private MarketService marketService;
+
+    @Setup(Level.Trial)
+    public void writeProductFile() throws IOException {
+        startDate = LocalDate.now();
+        productFile = Files.createTempFile("simulation-benchmark", ".csv");
+        BenchmarkCatalog.generator(startDate).writeProductsToCSV(productFile.toString(), size);
+    }
+
+    @Setup(Level.Iteration)
+    public void createMarketService() {
+        marketService = new MarketService();
+        marketService.importProducts(productFile.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteProductFile() throws IOException {
+        Files.deleteIfExists(productFile);
+    }
+
+    @Benchmark
+    public MarketService startMarketSimulation() throws IOException {
+        marketService.startMarketSimulation(startDate, numberOfDays, ReportSink.none());
+        return marketService;
+    }
+
+}
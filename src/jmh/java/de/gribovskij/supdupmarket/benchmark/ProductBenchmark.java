@@ -0,0 +1,68 @@
+package de.gribovskij.supdupmarket.benchmark;
+
+import de.gribovskij.supdupmarket.Product;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the quality and price of single products.
+ *
+ * <p>
+ * Every call takes the next product of the catalog; after each pass over the
+ * catalog the date moves on by one day. So every call evaluates a product for
+ * a date it was not evaluated for before, instead of measuring the memoized
+ * evaluation of the last date.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductBenchmark {
+
+    private static final int PRODUCTS = 1 << 12;
+
+    private static final int DAYS = 1 << 7;
+
+    private Product[] products;
+
+    private LocalDate[] dates;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        LocalDate storeDate = LocalDate.of(2024, 3, 1);
+        products = BenchmarkCatalog.products(PRODUCTS, storeDate).toArray(Product[]::new);
+        dates = new LocalDate[DAYS];
+        for (int day = 0; day < DAYS; day++) {
+            dates[day] = storeDate.plusDays(day);
+        }
+    }
+
+    @Benchmark
+    public int getCurrentQuality() {
+        int current = index++;
+        return products[current & (PRODUCTS - 1)].getCurrentQuality(dates[(current / PRODUCTS) & (DAYS - 1)]);
+    }
+
+    @Benchmark
+    public long getCurrentPrice() {
+        int current = index++;
+        return products[current & (PRODUCTS - 1)].getCurrentPriceInCents(dates[(current / PRODUCTS) & (DAYS - 1)]);
+    }
+
+}
@@ -0,0 +1,285 @@
+package de.gribovskij.supdupmarket.benchmark;
+
+import de.gribovskij.supdupmarket.Money;
+import de.gribovskij.supdupmarket.ProductQualityChange;
+import de.gribovskij.supdupmarket.ProductRuleSet;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares three ways to evaluate the rules of a mixed shelf: the compiled
+ * evaluator of {@link ProductRuleSet}, the switch on the quality change and
+ * the price flags it replaced, and one strategy class per kind of rule.
+ *
+ * <p>
+ * Each operation prices all {@code size} products of a shelf mixed from four
+ * groups (cheese, wine, meat and a discounted bread group) for one day; the
+ * day moves on with every operation. With four groups the strategy call sites
+ * see several classes and are not inlined anymore, while the evaluator stays
+ * one final class for every group.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductRuleBenchmark {
+
+    private static final long STORE_DAY = LocalDate.of(2024, 3, 1).toEpochDay();
+
+    private static final long NO_EXPIRY = LocalDate.MAX.toEpochDay();
+
+    private static final int DAYS = 30;
+
+    private static final ProductRuleSet BREAD_RULES = new ProductRuleSet(
+            true, ProductQualityChange.DECREASE, true, 5, 10, 100, 1, true, 50);
+
+    private static final List<ProductRuleSet> RULE_SETS = List.of(BenchmarkCatalog.CHEESE.getProductRule(),
+            BenchmarkCatalog.WINE.getProductRule(), BenchmarkCatalog.MEAT.getProductRule(), BREAD_RULES);
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    private ProductRuleSet[] ruleSets;
+
+    private SwitchRules[] switchRules;
+
+    private StrategyRules[] strategyRules;
+
+    private long[] basePrices;
+
+    private int[] startQualities;
+
+    private long[] expiryDays;
+
+    private long[] prices;
+
+    private int day;
+
+    @Setup
+    public void createShelf() {
+        ruleSets = new ProductRuleSet[size];
+        switchRules = new SwitchRules[size];
+        strategyRules = new StrategyRules[size];
+        basePrices = new long[size];
+        startQualities = new int[size];
+        expiryDays = new long[size];
+        prices = new long[size];
+
+        List<SwitchRules> switchRuleSets = RULE_SETS.stream().map(SwitchRules::new).toList();
+        List<StrategyRules> strategyRuleSets = RULE_SETS.stream().map(StrategyRules::of).toList();
+        SplittableRandom random = new SplittableRandom(BenchmarkCatalog.SEED);
+        for (int index = 0; index < size; index++) {
+            int group = random.nextInt(RULE_SETS.size());
+            ruleSets[index] = RULE_SETS.get(group);
+            switchRules[index] = switchRuleSets.get(group);
+            strategyRules[index] = strategyRuleSets.get(group);
+            basePrices[index] = random.nextLong(300, 9001);
+            startQualities[index] = random.nextInt(30, 101);
+            expiryDays[index] = ruleSets[index].isExpiring() ? STORE_DAY + random.nextInt(1, 61) : NO_EXPIRY;
+        }
+
+        for (int checkDay = 0; checkDay < DAYS; checkDay++) {
+            long evaluatorTotal = priceWithEvaluator(STORE_DAY + checkDay);
+            if (evaluatorTotal != priceWithSwitch(STORE_DAY + checkDay) || evaluatorTotal != priceWithStrategies(STORE_DAY + checkDay)) {
+                throw new IllegalStateException("Prices differ on day " + checkDay);
+            }
+        }
+    }
+
+    @Benchmark
+    public long compiledEvaluator() {
+        return priceWithEvaluator(nextDay());
+    }
+
+    @Benchmark
+    public long switchOnRules() {
+        return priceWithSwitch(nextDay());
+    }
+
+    @Benchmark
+    public long strategyObjects() {
+        return priceWithStrategies(nextDay());
+    }
+
+    private long nextDay() {
+        day = day == DAYS - 1 ? 0 : day + 1;
+        return STORE_DAY + day;
+    }
+
+    private long priceWithEvaluator(long currentDay) {
+        long total = 0;
+        for (int index = 0; index < size; index++) {
+            ProductRuleSet ruleSet = ruleSets[index];
+            int quality = ruleSet.getQualityAfterDays(startQualities[index], currentDay - STORE_DAY);
+            prices[index] = ruleSet.getPrice(basePrices[index], quality, expiryDays[index] - currentDay);
+            total += prices[index];
+        }
+        return total;
+    }
+
+    private long priceWithSwitch(long currentDay) {
+        long total = 0;
+        for (int index = 0; index < size; index++) {
+            SwitchRules rules = switchRules[index];
+            int quality = rules.quality(startQualities[index], currentDay - STORE_DAY);
+            prices[index] = rules.price(basePrices[index], quality, expiryDays[index] - currentDay);
+            total += prices[index];
+        }
+        return total;
+    }
+
+    private long priceWithStrategies(long currentDay) {
+        long total = 0;
+        for (int index = 0; index < size; index++) {
+            StrategyRules rules = strategyRules[index];
+            int quality = rules.quality.quality(startQualities[index], currentDay - STORE_DAY);
+            prices[index] = rules.price.price(basePrices[index], quality, expiryDays[index] - currentDay);
+            total += prices[index];
+        }
+        return total;
+    }
+
+    /**
+     * The rules as evaluated before the rule sets were compiled: a switch on
+     * the quality change and a test of every price flag on each call.
+     */
+    private static final class SwitchRules {
+
+        private final ProductRuleSet ruleSet;
+
+        SwitchRules(ProductRuleSet ruleSet) {
+            this.ruleSet = ruleSet;
+        }
+
+        int quality(int startQuality, long daysSinceStore) {
+            if (ruleSet.getQualityChange() == ProductQualityChange.UNCHANGING) {
+                return startQuality;
+            }
+            int qualityChangeIntervals = (int) (daysSinceStore / ruleSet.getDaysUntilQualityChange());
+            return switch (ruleSet.getQualityChange()) {
+                case UNCHANGING ->
+                    startQuality;
+                case INCREASE ->
+                    Math.min(startQuality + qualityChangeIntervals * ruleSet.getQualityChangeFactor(), ruleSet.getHighestQualityBoundary());
+                case DECREASE ->
+                    startQuality - qualityChangeIntervals * ruleSet.getQualityChangeFactor();
+            };
+        }
+
+        long price(long basePrice, int quality, long daysUntilExpiry) {
+            long basePriceWithQualityFactor = basePrice + 10L * quality;
+            long discount = Money.percentOf(basePriceWithQualityFactor, ruleSet.getExpiryDiscountInPercent());
+            boolean isOneDayBeforeExpiry = daysUntilExpiry == 1;
+
+            if (ruleSet.isDailyPrice() && ruleSet.isExpiryDiscount() && isOneDayBeforeExpiry) {
+                return basePriceWithQualityFactor - discount;
+            } else if (ruleSet.isExpiryDiscount() && isOneDayBeforeExpiry || daysUntilExpiry == 0) {
+                return basePrice - discount;
+            } else if (ruleSet.isDailyPrice()) {
+                return basePriceWithQualityFactor;
+            } else {
+                return basePrice;
+            }
+        }
+    }
+
+    /**
+     * The rules as one strategy object for the quality and one for the
+     * price, chosen by the kind of rule.
+     */
+    private record StrategyRules(QualityStrategy quality, PriceStrategy price) {
+
+        static StrategyRules of(ProductRuleSet ruleSet) {
+            QualityStrategy quality = switch (ruleSet.getQualityChange()) {
+                case UNCHANGING ->
+                    new UnchangingQuality();
+                case INCREASE ->
+                    new IncreasingQuality(ruleSet.getQualityChangeFactor(), ruleSet.getDaysUntilQualityChange(), ruleSet.getHighestQualityBoundary());
+                case DECREASE ->
+                    new DecreasingQuality(ruleSet.getQualityChangeFactor(), ruleSet.getDaysUntilQualityChange());
+            };
+            PriceStrategy price = ruleSet.isDailyPrice()
+                    ? new DailyPrice(ruleSet.isExpiryDiscount(), ruleSet.getExpiryDiscountInPercent())
+                    : new FixedPrice(ruleSet.isExpiryDiscount(), ruleSet.getExpiryDiscountInPercent());
+            return new StrategyRules(quality, price);
+        }
+    }
+
+    private interface QualityStrategy {
+
+        int quality(int startQuality, long daysSinceStore);
+    }
+
+    private interface PriceStrategy {
+
+        long price(long basePrice, int quality, long daysUntilExpiry);
+    }
+
+    private record UnchangingQuality() implements QualityStrategy {
+
+        @Override
+        public int quality(int startQuality, long daysSinceStore) {
+            return startQuality;
+        }
+    }
+
+    private record IncreasingQuality(int factor, int daysUntilChange, int highestQuality) implements QualityStrategy {
+
+        @Override
+        public int quality(int startQuality, long daysSinceStore) {
+            return Math.min(startQuality + (int) (daysSinceStore / daysUntilChange) * factor, highestQuality);
+        }
+    }
+
+    private record DecreasingQuality(int factor, int daysUntilChange) implements QualityStrategy {
+
+        @Override
+        public int quality(int startQuality, long daysSinceStore) {
+            return startQuality - (int) (daysSinceStore / daysUntilChange) * factor;
+        }
+    }
+
+    private record FixedPrice(boolean expiryDiscount, int discountInPercent) implements PriceStrategy {
+
+        @Override
+        public long price(long basePrice, int quality, long daysUntilExpiry) {
+            if (daysUntilExpiry == 0 || expiryDiscount && daysUntilExpiry == 1) {
+                return basePrice - Money.percentOf(basePrice + 10L * quality, discountInPercent);
+            }
+            return basePrice;
+        }
+    }
+
+    private record DailyPrice(boolean expiryDiscount, int discountInPercent) implements PriceStrategy {
+
+        @Override
+        public long price(long basePrice, int quality, long daysUntilExpiry) {
+            long basePriceWithQualityFactor = basePrice + 10L * quality;
+            if (daysUntilExpiry == 0) {
+                return basePrice - Money.percentOf(basePriceWithQualityFactor, discountInPercent);
+            }
+            if (expiryDiscount && daysUntilExpiry == 1) {
+                return basePriceWithQualityFactor - Money.percentOf(basePriceWithQualityFactor, discountInPercent);
+            }
+            return basePriceWithQualityFactor;
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package de.gribovskij.supdupmarket.benchmark;
+
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.ProductShelf;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the daily sweep of {@link ProductShelf#removeExpiredProducts}.
+ *
+ * <p>
+ * Each measured operation sweeps a freshly filled shelf on every day of
+ * {@value #DAYS} days, until only the wine is left. The largest shelf needs a
+ * heap of several GiB, e.g. {@code -jvmArgsAppend -Xmx12g}; smaller sizes are
+ * selected with {@code -p size=1000,100000}.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProductShelfBenchmark {
+
+    private static final int DAYS = 100;
+
+    private static final LocalDate STORE_DATE = LocalDate.of(2024, 3, 1);
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    private int size;
+
+    private List<Product> products;
+
+    private ProductShelf shelf;
+
+    @Setup(Level.Trial)
+    public void createProducts() {
+        products = BenchmarkCatalog.products(size, STORE_DATE);
+    }
+
+    @Setup(Level.Iteration)
+    public void fillShelf() {
+        // Release the previous shelf before the next one is filled
+        shelf = null;
+        shelf = new ProductShelf(List.of());
+        shelf.addProducts(products, STORE_DATE);
+    }
+
+    @Benchmark
+    public void removeExpiredProducts(Blackhole blackhole) {
+        LocalDate currentDate = STORE_DATE;
+        for (int day = 0; day < DAYS; day++) {
+            blackhole.consume(shelf.removeExpiredProducts(currentDate));
+            currentDate = currentDate.plusDays(1);
+        }
+    }
+
+}
@@ -0,0 +1,493 @@
+package de.gribovskij.supdupmarket;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A shelf which stores its products column wise in primitive arrays instead of
+ * one heap object per product.
+ *
+ * <p>
+ * Dates are stored as epoch days, the product group as its id in the
+ * {@link ProductGroupRegistry} of the shelf. Additionally the first non marketable day of
+ * every product is kept in its own column, so the daily sweep and the pricing
+ * only run over primitive arrays. Products are handed out through a reusable
+ * {@link ProductView}; {@link Product} instances are only created on request,
+ * e.g. for removed products. A product keeps its id: the id of an added
+ * {@link Product}, or the id generated when the product is materialized the
+ * first time. Products with an id are removed in constant time; the last
+ * product of the shelf takes the place of a removed one.</p>
+ *
+ * <p>
+ * The shelf is an alternative to {@link ProductShelf} for bulk sweeps and
+ * pricing, not a drop-in replacement: it shares no type with it, and a
+ * {@link ProductView} has to be materialized where a {@link Product} is
+ * expected.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class ColumnarProductShelf {
+
+    // Epoch day used for products without expiry date (LocalDate.MAX)
+    private static final int NO_EXPIRY = Integer.MAX_VALUE;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ProductGroupRegistry productGroups;
+
+    // Product ids, 0 until a product added without id is materialized
+    private long[] ids;
+
+    // Indices of the products with an id, by product id
+    private final Map<Long, Integer> indices;
+
+    private String[] names;
+
+    // Base prices in cents
+    private long[] basePrices;
+
+    private int[] expiryDays;
+
+    private int[] storeDays;
+
+    private int[] startQualities;
+
+    private int[] groupIds;
+
+    // The first day, the product is not marketable anymore
+    private int[] unmarketableDays;
+
+    // Rule sets the unmarketable days were calculated with, by product group id
+    private ProductRuleSet[] ruleSets;
+
+    private int size;
+
+    public ColumnarProductShelf() {
+        this(new ProductGroupRegistry());
+    }
+
+    /**
+     * Creates a shelf sharing the product group ids of the given registry.
+     * Product groups of added products which are not registered yet are
+     * registered.
+     *
+     * @param productGroups the registry of the product groups
+     */
+    public ColumnarProductShelf(ProductGroupRegistry productGroups) {
+        this.productGroups = productGroups;
+        this.ids = new long[INITIAL_CAPACITY];
+        this.indices = new HashMap<>();
+        this.names = new String[INITIAL_CAPACITY];
+        this.basePrices = new long[INITIAL_CAPACITY];
+        this.expiryDays = new int[INITIAL_CAPACITY];
+        this.storeDays = new int[INITIAL_CAPACITY];
+        this.startQualities = new int[INITIAL_CAPACITY];
+        this.groupIds = new int[INITIAL_CAPACITY];
+        this.unmarketableDays = new int[INITIAL_CAPACITY];
+        this.ruleSets = new ProductRuleSet[0];
+    }
+
+    /**
+     * Adds a product to the shelf if the product is marketable.
+     *
+     * @param product to add to the shelf
+     * @param currentDate the date the product is added to the shelf
+     */
+    public void addProduct(Product product, LocalDate currentDate) {
+        if (indices.containsKey(product.getId())) {
+            throw new IllegalArgumentException("Product is already stored on the shelf: " + product);
+        }
+        product.setStoreDate(currentDate);
+        if (addProduct(product.getName(), product.getBasePriceInCents(), product.getExpiryDate(),
+                product.getStartQuality(), product.getProductGroup(), currentDate)) {
+            ids[size - 1] = product.getId();
+            indices.put(product.getId(), size - 1);
+        }
+    }
+
+    /**
+     * Adds a product to the shelf if the product is marketable, without
+     * creating a {@link Product} instance.
+     *
+     * @param name the product's name
+     * @param basePriceInCents the initial price in cents; must be non-negative
+     * @param expiryDate the expiry date if perishable; otherwise
+     * LocalDate.MAX
+     * @param startQuality the initial quality; must be non-negative
+     * @param productGroup the associated product group
+     * @param currentDate the date the product is added to the shelf
+     * @return true if the product was added, false if it is not marketable
+     */
+    public boolean addProduct(String name, long basePriceInCents, LocalDate expiryDate, int startQuality, ProductGroup productGroup, LocalDate currentDate) {
+        return addProduct(name, basePriceInCents, expiryDate, startQuality, productGroups.register(productGroup), currentDate);
+    }
+
+    /**
+     * Adds a product to the shelf if the product is marketable, without
+     * creating a {@link Product} instance. The product group is given by its
+     * id in the registry of the shelf.
+     *
+     * @param name the product's name
+     * @param basePriceInCents the initial price in cents; must be non-negative
+     * @param expiryDate the expiry date if perishable; otherwise
+     * LocalDate.MAX
+     * @param startQuality the initial quality; must be non-negative
+     * @param productGroupId the id of the associated product group
+     * @param currentDate the date the product is added to the shelf
+     * @return true if the product was added, false if it is not marketable
+     */
+    public boolean addProduct(String name, long basePriceInCents, LocalDate expiryDate, int startQuality, int productGroupId, LocalDate currentDate) {
+        ProductGroup productGroup = productGroups.getProductGroup(productGroupId);
+        if (basePriceInCents < 0) {
+            throw new IllegalArgumentException("Base price cannot be negative");
+        }
+        if (startQuality < 0) {
+            throw new IllegalArgumentException("Quality cannot be negative");
+        }
+        ProductRuleSet productRuleSet = productGroup.getProductRule();
+        if (!productRuleSet.isExpiring() && !expiryDate.equals(LocalDate.MAX)) {
+            throw new IllegalArgumentException("expiryDate must be initialized with LocalDate.MAX, if product cannot expire");
+        }
+
+        LocalDate unmarketableDate = productRuleSet.getUnmarketableDate(startQuality, currentDate, expiryDate);
+        if (!unmarketableDate.isAfter(currentDate)) {
+            return false;
+        }
+
+        if (size == names.length) {
+            grow();
+        }
+        ids[size] = 0;
+        names[size] = name;
+        basePrices[size] = basePriceInCents;
+        expiryDays[size] = toDay(expiryDate);
+        storeDays[size] = toDay(currentDate);
+        startQualities[size] = startQuality;
+        groupIds[size] = productGroupId;
+        unmarketableDays[size] = toDay(unmarketableDate);
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes the product with the id of the given product. The last product
+     * of the shelf is moved to the index of the removed product.
+     *
+     * @param product the product to remove
+     * @return true if the product was stored on the shelf
+     */
+    public boolean removeProduct(Product product) {
+        Integer index = indices.remove(product.getId());
+        if (index == null) {
+            return false;
+        }
+        int last = --size;
+        if (index != last) {
+            moveProduct(last, index);
+        }
+        names[last] = null;
+        return true;
+    }
+
+    /**
+     * Removes all expired products from the shelf based on the given date. The
+     * remaining products are compacted in place, only the removed products are
+     * materialized.
+     *
+     * @param currentDate the date used to check product marketability
+     * @return a list of non marketable products, in shelf order
+     */
+    public List<Product> removeExpiredProducts(LocalDate currentDate) {
+        updateUnmarketableDays();
+        int currentDay = toDay(currentDate);
+        List<Product> nonMarketableProducts = new ArrayList<>();
+
+        int retained = 0;
+        for (int index = 0; index < size; index++) {
+            if (unmarketableDays[index] <= currentDay) {
+                Product product = toProduct(index);
+                indices.remove(product.getId());
+                nonMarketableProducts.add(product);
+                continue;
+            }
+            if (retained != index) {
+                moveProduct(index, retained);
+            }
+            retained++;
+        }
+        Arrays.fill(names, retained, size, null);
+        size = retained;
+
+        return nonMarketableProducts;
+    }
+
+    /**
+     * Calculates the current quality of the stored product at the given index.
+     *
+     * @param index the index of the product on the shelf
+     * @param currentDate the current date to compare against the storage date
+     * @return the calculated current quality
+     */
+    public int getCurrentQuality(int index, LocalDate currentDate) {
+        return currentQuality(index, toDay(currentDate));
+    }
+
+    /**
+     * Calculates the current price of the stored product at the given index.
+     *
+     * @param index the index of the product on the shelf
+     * @param currentDate the current date
+     * @return the current price of the product in cents
+     */
+    public long getCurrentPriceInCents(int index, LocalDate currentDate) {
+        return currentPrice(index, toDay(currentDate));
+    }
+
+    /**
+     * Writes the current prices of all stored products into the given array,
+     * in shelf order.
+     *
+     * @param currentDate the current date
+     * @param prices the array to write the prices in cents to; must be at least
+     * {@link #size()} long
+     */
+    public void getCurrentPrices(LocalDate currentDate, long[] prices) {
+        if (prices.length < size) {
+            throw new IllegalArgumentException("Price array too small for " + size + " products");
+        }
+        int currentDay = toDay(currentDate);
+        for (int index = 0; index < size; index++) {
+            prices[index] = currentPrice(index, currentDay);
+        }
+    }
+
+    /**
+     * Passes every stored product in shelf order to the given action, using
+     * one reused {@link ProductView}. The view must not be kept by the action.
+     *
+     * @param action the action to perform for every product
+     */
+    public void forEach(Consumer<ProductView> action) {
+        updateUnmarketableDays();
+        ProductView view = new ProductView();
+        for (int index = 0; index < size; index++) {
+            view.index = index;
+            action.accept(view);
+        }
+    }
+
+    /**
+     * Returns a view on the stored product at the given index. The view is
+     * only valid until the shelf or the rule set of a product group is
+     * changed.
+     *
+     * @param index the index of the product on the shelf
+     * @return a view on the product
+     */
+    public ProductView getProductView(int index) {
+        checkIndex(index);
+        ProductView view = new ProductView();
+        view.index = index;
+        return view;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int currentQuality(int index, int currentDay) {
+        ProductRuleSet productRuleSet = productGroups.getProductGroup(groupIds[index]).getProductRule();
+        return productRuleSet.getQualityAfterDays(startQualities[index], currentDay - storeDays[index]);
+    }
+
+    private long currentPrice(int index, int currentDay) {
+        ProductRuleSet productRuleSet = productGroups.getProductGroup(groupIds[index]).getProductRule();
+        long daysUntilExpiry = expiryDays[index] == NO_EXPIRY ? Long.MAX_VALUE : (long) expiryDays[index] - currentDay;
+        return productRuleSet.getPrice(basePrices[index], currentQuality(index, currentDay), daysUntilExpiry);
+    }
+
+    private Product toProduct(int index) {
+        ProductGroup productGroup = productGroups.getProductGroup(groupIds[index]);
+        Product product;
+        if (ids[index] == 0) {
+            product = new Product(names[index], basePrices[index], toDate(expiryDays[index]),
+                    startQualities[index], productGroup.getName(), productGroup);
+            ids[index] = product.getId();
+            indices.put(product.getId(), index);
+        } else {
+            product = new Product(ids[index], names[index], basePrices[index], toDate(expiryDays[index]),
+                    startQualities[index], productGroup.getName(), productGroup);
+        }
+        product.setStoreDate(toDate(storeDays[index]));
+        return product;
+    }
+
+    private boolean hasCurrentRuleSet(int groupId) {
+        return groupId < ruleSets.length && ruleSets[groupId] == productGroups.getProductGroup(groupId).getProductRule();
+    }
+
+    /**
+     * Calculates the unmarketable days of the products again, whose product
+     * group got another rule set since the days were calculated. Called once
+     * per sweep or iteration of the shelf; products added in between are
+     * already calculated with the current rule set.
+     */
+    private void updateUnmarketableDays() {
+        if (ruleSets.length < productGroups.size()) {
+            int knownGroups = ruleSets.length;
+            ruleSets = Arrays.copyOf(ruleSets, productGroups.size());
+            for (int groupId = knownGroups; groupId < ruleSets.length; groupId++) {
+                ruleSets[groupId] = productGroups.getProductGroup(groupId).getProductRule();
+            }
+        }
+        boolean[] changedGroups = null;
+        for (int groupId = 0; groupId < ruleSets.length; groupId++) {
+            ProductRuleSet productRuleSet = productGroups.getProductGroup(groupId).getProductRule();
+            if (productRuleSet != ruleSets[groupId]) {
+                if (changedGroups == null) {
+                    changedGroups = new boolean[ruleSets.length];
+                }
+                changedGroups[groupId] = true;
+                ruleSets[groupId] = productRuleSet;
+            }
+        }
+        if (changedGroups == null) {
+            return;
+        }
+        for (int index = 0; index < size; index++) {
+            if (changedGroups[groupIds[index]]) {
+                LocalDate unmarketableDate = ruleSets[groupIds[index]].getUnmarketableDate(startQualities[index],
+                        toDate(storeDays[index]), toDate(expiryDays[index]));
+                unmarketableDays[index] = toDay(unmarketableDate);
+            }
+        }
+    }
+
+    private void moveProduct(int from, int to) {
+        ids[to] = ids[from];
+        names[to] = names[from];
+        basePrices[to] = basePrices[from];
+        expiryDays[to] = expiryDays[from];
+        storeDays[to] = storeDays[from];
+        startQualities[to] = startQualities[from];
+        groupIds[to] = groupIds[from];
+        unmarketableDays[to] = unmarketableDays[from];
+        if (ids[to] != 0) {
+            indices.put(ids[to], to);
+        }
+    }
+
+    private void grow() {
+        int capacity = names.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        basePrices = Arrays.copyOf(basePrices, capacity);
+        expiryDays = Arrays.copyOf(expiryDays, capacity);
+        storeDays = Arrays.copyOf(storeDays, capacity);
+        startQualities = Arrays.copyOf(startQualities, capacity);
+        groupIds = Arrays.copyOf(groupIds, capacity);
+        unmarketableDays = Arrays.copyOf(unmarketableDays, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + size + " products");
+        }
+    }
+
+    private static int toDay(LocalDate date) {
+        if (date.equals(LocalDate.MAX)) {
+            return NO_EXPIRY;
+        }
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    private static LocalDate toDate(int day) {
+        return day == NO_EXPIRY ? LocalDate.MAX : LocalDate.ofEpochDay(day);
+    }
+
+    // Getter / Setter
+    /**
+     * Materializes all stored products as {@link Product} instances.
+     *
+     * @return a new list with all stored products, in shelf order
+     */
+    public List<Product> getStoredProducts() {
+        List<Product> storedProducts = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            storedProducts.add(toProduct(index));
+        }
+        return storedProducts;
+    }
+
+    /**
+     * A flyweight view on one product of the shelf. The view reads directly
+     * from the columns of the shelf and does not copy any values.
+     */
+    public class ProductView {
+
+        private int index;
+
+        private ProductView() {
+        }
+
+        public String getName() {
+            return names[index];
+        }
+
+        public long getBasePriceInCents() {
+            return basePrices[index];
+        }
+
+        public LocalDate getExpiryDate() {
+            return toDate(expiryDays[index]);
+        }
+
+        public LocalDate getStoreDate() {
+            return toDate(storeDays[index]);
+        }
+
+        public int getStartQuality() {
+            return startQualities[index];
+        }
+
+        public ProductGroup getProductGroup() {
+            return productGroups.getProductGroup(groupIds[index]);
+        }
+
+        public int getCurrentQuality(LocalDate currentDate) {
+            return currentQuality(index, toDay(currentDate));
+        }
+
+        public long getCurrentPriceInCents(LocalDate currentDate) {
+            return currentPrice(index, toDay(currentDate));
+        }
+
+        public boolean isMarketable(LocalDate checkDate) {
+            if (!hasCurrentRuleSet(groupIds[index])) {
+                updateUnmarketableDays();
+            }
+            return unmarketableDays[index] > toDay(checkDate);
+        }
+
+        /**
+         * Creates a {@link Product} with the values of this view.
+         *
+         * @return a new product instance
+         */
+        public Product toProduct() {
+            return ColumnarProductShelf.this.toProduct(index);
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+    }
+
+}
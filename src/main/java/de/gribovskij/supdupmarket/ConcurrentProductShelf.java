@@ -0,0 +1,266 @@
+package de.gribovskij.supdupmarket;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A shelf which can be shared by many threads, e.g. the points of sale, the
+ * restocking jobs and the nightly sweep.
+ *
+ * <p>
+ * The shelf is striped by batch: the products are spread by the hash of their
+ * {@link ProductKey} over a fixed number of stripes, each one an indexed
+ * {@link ProductShelf} guarded by its own read write lock. The products of one
+ * group are spread over all stripes, so even a market with a few large groups
+ * uses all locks. All products of a batch live in the same stripe, so every
+ * single operation, including the lookup and removal of a batch, only locks one
+ * stripe.</p>
+ *
+ * <p>
+ * {@link #snapshot()} read locks all stripes at once, in stripe order, just
+ * long enough to take the current {@link ProductShelfVersion} of every
+ * stripe. The daily sweep in {@link #removeExpiredProducts(LocalDate)} write
+ * locks one stripe after the other, so the other stripes stay available while
+ * it runs.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class ConcurrentProductShelf {
+
+    private static final int DEFAULT_STRIPES = 16;
+
+    private final Stripe[] stripes;
+
+    public ConcurrentProductShelf() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates an empty shelf.
+     *
+     * @param stripes the number of stripes, rounded up to a power of two
+     */
+    public ConcurrentProductShelf(int stripes) {
+        if (stripes < 1 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("Invalid number of stripes: " + stripes);
+        }
+        this.stripes = new Stripe[stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1];
+        for (int index = 0; index < this.stripes.length; index++) {
+            this.stripes[index] = new Stripe();
+        }
+    }
+
+    /**
+     * Adds a product to a shelf if the product is marketable.
+     *
+     * @param product to add to the shelf
+     * @param currentDate the date the product is added to the shelf
+     */
+    public void addProduct(Product product, LocalDate currentDate) {
+        Stripe stripe = stripeOf(ProductKey.of(product));
+        Lock lock = stripe.lock.writeLock();
+        lock.lock();
+        try {
+            stripe.products.addProduct(product, currentDate);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds all marketable products of the given collection to the shelf. Every
+     * stripe is locked once for all of its products.
+     *
+     * @param products the products to add to the shelf
+     * @param currentDate the date the products are added to the shelf
+     */
+    public void addProducts(Collection<Product> products, LocalDate currentDate) {
+        List<List<Product>> productsByStripe = new ArrayList<>(stripes.length);
+        for (int index = 0; index < stripes.length; index++) {
+            productsByStripe.add(new ArrayList<>());
+        }
+        for (Product product : products) {
+            productsByStripe.get(stripeIndex(ProductKey.of(product))).add(product);
+        }
+        for (int index = 0; index < stripes.length; index++) {
+            List<Product> stripeProducts = productsByStripe.get(index);
+            if (stripeProducts.isEmpty()) {
+                continue;
+            }
+            Stripe stripe = stripes[index];
+            Lock lock = stripe.lock.writeLock();
+            lock.lock();
+            try {
+                stripe.products.addProducts(stripeProducts, currentDate);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes the given product from the shelf. If several threads remove the
+     * same product, e.g. two points of sale, only one of them succeeds.
+     *
+     * @param product the product to remove
+     * @return true if the product was removed by this call, false if it was
+     * not stored
+     */
+    public boolean removeProduct(Product product) {
+        Stripe stripe = stripeOf(ProductKey.of(product));
+        Lock lock = stripe.lock.writeLock();
+        lock.lock();
+        try {
+            return stripe.products.removeProduct(product.getId()) != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the stored products of the batch with the given key.
+     *
+     * @param key the key of the batch
+     * @return the products of the batch, in the order they were added
+     */
+    public List<Product> findProducts(ProductKey key) {
+        Stripe stripe = stripeOf(key);
+        Lock lock = stripe.lock.readLock();
+        lock.lock();
+        try {
+            return stripe.products.findProducts(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all stored products of the batch with the given key at once.
+     *
+     * @param key the key of the batch
+     * @return the removed products, in the order they were added
+     */
+    public List<Product> removeProducts(ProductKey key) {
+        Stripe stripe = stripeOf(key);
+        Lock lock = stripe.lock.writeLock();
+        lock.lock();
+        try {
+            return stripe.products.removeProducts(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all expired products from the shelf based on the given date.
+     *
+     * <p>
+     * The stripes are swept one after the other, so products of other stripes
+     * can be added and sold meanwhile. Products added during the sweep with a
+     * date before the given date are removed by the next sweep.</p>
+     *
+     * @param currentDate the date used to check product marketability
+     * @return a list of non marketable products, in stripe order
+     */
+    public List<Product> removeExpiredProducts(LocalDate currentDate) {
+        List<Product> nonMarketableProducts = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            Lock lock = stripe.lock.writeLock();
+            lock.lock();
+            try {
+                nonMarketableProducts.addAll(stripe.products.removeExpiredProducts(currentDate));
+            } finally {
+                lock.unlock();
+            }
+        }
+        return nonMarketableProducts;
+    }
+
+    /**
+     * Returns the number of stored products. Concurrent changes of other
+     * stripes may or may not be counted.
+     *
+     * @return the number of stored products
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            Lock lock = stripe.lock.readLock();
+            lock.lock();
+            try {
+                size += stripe.products.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripeOf(ProductKey key) {
+        return stripes[stripeIndex(key)];
+    }
+
+    private int stripeIndex(ProductKey key) {
+        int hash = key.hashCode();
+        return (hash ^ hash >>> 16) & (stripes.length - 1);
+    }
+
+    // Getter / Setter
+    /**
+     * Returns a consistent copy of the stored products, which shows the shelf
+     * as it was at one moment. The products are ordered by stripe and in the
+     * order they were added within a stripe.
+     *
+     * @return an unmodifiable copy of the stored products
+     */
+    public List<Product> getStoredProducts() {
+        List<Product> storedProducts = new ArrayList<>();
+        for (ProductShelfVersion version : snapshot()) {
+            for (Product product : version) {
+                storedProducts.add(product);
+            }
+        }
+        return Collections.unmodifiableList(storedProducts);
+    }
+
+    /**
+     * Returns the current versions of all stripes, taken at one moment. All
+     * stripes are read locked only while the versions are collected, so
+     * iterating the versions does not block the writers.
+     *
+     * @return the versions of the stripes, in stripe order
+     */
+    public List<ProductShelfVersion> snapshot() {
+        // Locking in stripe order cannot deadlock, writers only hold one stripe
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+        }
+        try {
+            List<ProductShelfVersion> versions = new ArrayList<>(stripes.length);
+            for (Stripe stripe : stripes) {
+                versions.add(stripe.products.snapshot());
+            }
+            return Collections.unmodifiableList(versions);
+        } finally {
+            for (Stripe stripe : stripes) {
+                stripe.lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * The products of the batches mapped to one stripe.
+     */
+    private static final class Stripe {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private final ProductShelf products = new ProductShelf(List.of());
+    }
+
+}
@@ -0,0 +1,193 @@
+package de.gribovskij.supdupmarket;
+
+import de.gribovskij.supdupmarket.report.DailyReportRenderer;
+import de.gribovskij.supdupmarket.report.ReportSink;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Event driven variant of the market simulation.
+ *
+ * <p>
+ * Instead of visiting every day and every product, the simulation keeps a
+ * priority queue of the days on which the state of a product changes: the
+ * next quality change interval, the expiry discount day and the day the
+ * product is not marketable anymore because it expired or crossed its quality
+ * boundary. The simulation jumps from event day to event day and only prints
+ * the affected products, so long forecasts for slowly changing products like
+ * wine only cost a few events per product.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class MarketEventSimulation {
+
+    private final ProductShelf shelf;
+
+    private final PriorityQueue<ProductEvent> events;
+
+    // The position of every product on the shelf when the simulation started
+    private final Map<Product, Integer> productOrder;
+
+    private LocalDate startDate;
+
+    // The last simulated day
+    private LocalDate endDate;
+
+    public MarketEventSimulation(ProductShelf shelf) {
+        this.shelf = shelf;
+        this.productOrder = new IdentityHashMap<>();
+        this.events = new PriorityQueue<>(Comparator.comparing(ProductEvent::date)
+                .thenComparingInt(event -> productOrder.get(event.product())));
+    }
+
+    /**
+     * Runs the simulation for the given period. On the start day all stored
+     * products are printed, on every following event day only the products
+     * whose quality or price changed and the products removed from the shelf.
+     * Like {@link MarketService#startMarketSimulation(LocalDate, int)} the
+     * days 1 to {@code numberOfDays - 1} are simulated.
+     *
+     * @param startDate the first day of the simulation
+     * @param numberOfDays the number of days to simulate
+     * @return the number of processed events
+     */
+    public int run(LocalDate startDate, int numberOfDays) {
+        try {
+            return run(startDate, numberOfDays, ReportSink.console());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs the simulation like {@link #run(LocalDate, int)}, but writes the
+     * days to the given sink instead of the console.
+     *
+     * @param startDate the first day of the simulation
+     * @param numberOfDays the number of days to simulate
+     * @param reportSink the sink of the reports, e.g.
+     * {@link ReportSink#none()} to switch the output off; it is closed at the
+     * end of the simulation
+     * @return the number of processed events
+     * @throws IOException if the report cannot be written
+     */
+    public int run(LocalDate startDate, int numberOfDays, ReportSink reportSink) throws IOException {
+        try (DailyReportRenderer renderer = DailyReportRenderer.async(reportSink)) {
+            return run(startDate, numberOfDays, renderer);
+        }
+    }
+
+    /**
+     * Runs the simulation like {@link #run(LocalDate, int)}, but writes the
+     * days to the given renderer.
+     *
+     * @param startDate the first day of the simulation
+     * @param numberOfDays the number of days to simulate
+     * @param renderer the renderer of the daily reports
+     * @return the number of processed events
+     * @throws IOException if the report cannot be written
+     */
+    public int run(LocalDate startDate, int numberOfDays, DailyReportRenderer renderer) throws IOException {
+        this.startDate = startDate;
+        this.endDate = startDate.plusDays(numberOfDays - 2L);
+
+        renderer.renderWelcome();
+
+        List<Product> removedProducts = shelf.removeExpiredProducts(startDate);
+        List<Product> storedProducts = shelf.getStoredProducts();
+        for (Product product : storedProducts) {
+            productOrder.put(product, productOrder.size());
+            scheduleEvents(product, startDate);
+        }
+        renderDay(renderer, startDate, storedProducts, removedProducts);
+
+        int processedEvents = 0;
+        while (!events.isEmpty()) {
+            LocalDate eventDate = events.peek().date();
+            List<Product> changedProducts = new ArrayList<>();
+            boolean removalDue = false;
+
+            while (!events.isEmpty() && events.peek().date().equals(eventDate)) {
+                ProductEvent event = events.poll();
+                processedEvents++;
+                if (event.type() == ProductEventType.UNMARKETABLE) {
+                    removalDue = true;
+                    continue;
+                }
+                if (changedProducts.isEmpty() || changedProducts.get(changedProducts.size() - 1) != event.product()) {
+                    changedProducts.add(event.product());
+                }
+                if (event.type() == ProductEventType.QUALITY_CHANGE) {
+                    scheduleQualityChange(event.product(), eventDate);
+                }
+            }
+
+            removedProducts = removalDue ? shelf.removeExpiredProducts(eventDate) : List.of();
+            renderDay(renderer, eventDate, changedProducts, removedProducts);
+        }
+        return processedEvents;
+    }
+
+    private void renderDay(DailyReportRenderer renderer, LocalDate currentDate, List<Product> changedProducts, List<Product> removedProducts) throws IOException {
+        renderer.renderDay(ChronoUnit.DAYS.between(startDate, currentDate) + 1, currentDate, changedProducts, removedProducts);
+    }
+
+    private void scheduleEvents(Product product, LocalDate currentDate) {
+        ProductRuleSet productRuleSet = product.getProductGroup().getProductRule();
+
+        schedule(product, product.getUnmarketableDate(), ProductEventType.UNMARKETABLE);
+        if (productRuleSet.isExpiring() && productRuleSet.isExpiryDiscount()) {
+            LocalDate oneDayBeforeExpiry = product.getExpiryDate().minusDays(1);
+            if (oneDayBeforeExpiry.isAfter(currentDate)) {
+                schedule(product, oneDayBeforeExpiry, ProductEventType.EXPIRY_DISCOUNT);
+            }
+        }
+        scheduleQualityChange(product, currentDate);
+    }
+
+    /**
+     * Schedules the next quality change interval of the product after the
+     * given date, if the quality actually changes with it.
+     */
+    private void scheduleQualityChange(Product product, LocalDate currentDate) {
+        ProductRuleSet productRuleSet = product.getProductGroup().getProductRule();
+        if (productRuleSet.getQualityChange() == ProductQualityChange.UNCHANGING) {
+            return;
+        }
+
+        long daysSinceStore = ChronoUnit.DAYS.between(product.getStoreDate(), currentDate);
+        int qualityChangeIntervalls = (int) (daysSinceStore / productRuleSet.getDaysUntilQualityChange());
+        int currentQuality = productRuleSet.getQuality(product.getStartQuality(), qualityChangeIntervalls);
+        if (productRuleSet.getQuality(product.getStartQuality(), qualityChangeIntervalls + 1) == currentQuality) {
+            return;
+        }
+
+        long daysUntilNextChange = (qualityChangeIntervalls + 1L) * productRuleSet.getDaysUntilQualityChange();
+        schedule(product, product.getStoreDate().plusDays(daysUntilNextChange), ProductEventType.QUALITY_CHANGE);
+    }
+
+    private void schedule(Product product, LocalDate eventDate, ProductEventType type) {
+        // Events after the removal of the product or after the simulated period are dropped
+        if (eventDate.isAfter(endDate) || type != ProductEventType.UNMARKETABLE && !eventDate.isBefore(product.getUnmarketableDate())) {
+            return;
+        }
+        events.add(new ProductEvent(eventDate, product, type));
+    }
+
+    private enum ProductEventType {
+        QUALITY_CHANGE, EXPIRY_DISCOUNT, UNMARKETABLE
+    }
+
+    private record ProductEvent(LocalDate date, Product product, ProductEventType type) {
+
+    }
+
+}
@@ -1,15 +1,48 @@
-package de.gribovskij.supdupmarket;
-
-import java.time.LocalDate;
-
-/**
- * Runner class for the console application
- * @author Eugen Gribovskij
- */
-public class MarketMain {
-
-    public static void main(String[] args) {
-        MarketService marketService = new MarketService();
-        marketService.startMarketSimulation(LocalDate.now(), 120);
-    }
-}
+package de.gribovskij.supdupmarket;
+
+import de.gribovskij.supdupmarket.metrics.JmxMetricsExporter;
+import de.gribovskij.supdupmarket.metrics.MarketMetrics;
+import de.gribovskij.supdupmarket.metrics.MetricsExporter;
+import de.gribovskij.supdupmarket.metrics.TextMetricsExporter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Runner class for the console application
+ *
+ * <p>
+ * The metrics of the market are published over JMX. With
+ * {@code -Dsupdupmarket.metricsFile=<path>} they are also written to a text
+ * file every ten seconds.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class MarketMain {
+
+    public static void main(String[] args) throws IOException {
+        MetricsExporter jmxExporter = new JmxMetricsExporter(MarketMetrics.REGISTRY);
+        try {
+            MetricsExporter textExporter = createTextExporter();
+            try {
+                MarketService marketService = new MarketService();
+                marketService.startMarketSimulation(LocalDate.now(), 120);
+            } finally {
+                if (textExporter != null) {
+                    textExporter.close();
+                }
+            }
+        } finally {
+            jmxExporter.close();
+        }
+    }
+
+    private static MetricsExporter createTextExporter() {
+        String metricsFile = System.getProperty("supdupmarket.metricsFile");
+        if (metricsFile == null) {
+            return null;
+        }
+        return new TextMetricsExporter(MarketMetrics.REGISTRY, Path.of(metricsFile), Duration.ofSeconds(10));
+    }
+}
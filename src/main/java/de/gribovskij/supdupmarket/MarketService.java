@@ -1,162 +1,390 @@
-package de.gribovskij.supdupmarket;
-
-import de.gribovskij.supdupmarket.csv.CSVExporter;
-import de.gribovskij.supdupmarket.csv.CSVImporter;
-import de.gribovskij.supdupmarket.csv.CSVProduct;
-import de.gribovskij.supdupmarket.csv.CSVProductCreator;
-import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * The MarketService class represents a simulation of a market system. It
- * manages the lifecycle of products and product groups, performs initialization
- * from CSV files, and runs a simulation over a specified number of days to
- * simulate daily market activities.
- *
- * This class initializes product groups such as Cheese, Wine, and Meat, each
- * with specific rules for quality management, expiry handling, and pricing
- * strategies. It also reads products from a CSV file, associates them with
- * their respective groups, and manages their lifecycle through daily
- * simulations.
- *
- * The simulation starts from a specified start date and runs for a specified
- * number of days, during which it tracks and manages the expiration and removal
- * of products based on their expiry dates.
- *
- * @author Eugen Gribovskij
- */
-public class MarketService {
-
-    private final ProductShelf shelf;
-    private final List<ProductGroup> productGroups;
-    private List<CSVProduct> csvProducts;
-    private final LocalDate startDate;
-
-    public MarketService() {
-        this.shelf = new ProductShelf(new ArrayList<>());
-        this.productGroups = new ArrayList<>();
-        this.csvProducts = new ArrayList<>();
-        this.startDate = LocalDate.now();
-        initializeProductGroups();
-        initializeProducts();
-    }
-
-    private void initializeProducts() {
-
-        CSVProductCreator csvProductCreator = new CSVProductCreator();
-        csvProductCreator.createCsvProducts();
-        csvProducts = csvProductCreator.getCsvProducts();
-        CSVExporter.writeProductsToCSV("src/main/resources/products.csv", csvProducts);
-
-        List<CSVProduct> importedCSVProducts = CSVImporter.importProductsFromCSV("src/main/resources/products.csv");
-
-        for (CSVProduct csvProduct : importedCSVProducts) {
-            shelf.addProduct(new Product(
-                    csvProduct.getName(),
-                    csvProduct.getBasePrice(),
-                    csvProduct.getExpiryDate(),
-                    csvProduct.getStartQuality(),
-                    csvProduct.getProductGroupName(),
-                    findProductGroup(csvProduct.getProductGroupName())), startDate);
-        }
-
-    }
-
-    private void initializeProductGroups() {
-        ProductRuleSet cheeseRuleSet = new ProductRuleSet(
-                true, // Expiring
-                ProductQualityChange.DECREASE, // Quality decreases
-                true, // Daily price change
-                1, // Quality change factor
-                30, // Lowest quality boundary
-                100, // Highest quality boundary
-                1, // Days until quality change
-                false, // Expiry discount
-                0 // Expire discount in percent
-        );
-        productGroups.add(new ProductGroup("Cheese", "Kaese", cheeseRuleSet));
-
-        ProductRuleSet wineRuleSet = new ProductRuleSet(
-                false, // Not expiring
-                ProductQualityChange.INCREASE, // Quality increases
-                false, // No daily price change
-                1, // Quality change factor
-                1, // Lowest quality boundary
-                50, // Highest quality boundary
-                10, // Days until quality change
-                false, // Expiry discount
-                0 // Expire discount in percent
-        );
-        productGroups.add(new ProductGroup("Wine", "Wein", wineRuleSet));
-
-        ProductRuleSet meatRuleSet = new ProductRuleSet(
-                true, // Expiring
-                ProductQualityChange.UNCHANGING, // Quality increases
-                false, // No daily price change
-                0, // Quality change factor
-                1, // Lowest quality boundary
-                1, // Highest quality boundary
-                0, // Days until quality change
-                true, // Expiry discount
-                25 // Expire discount in percent
-        );
-        productGroups.add(new ProductGroup("Meat", "Fleisch", meatRuleSet));
-
-    }
-
-    public void startMarketSimulation(LocalDate currentDate, int numberOfDays) {
-        String removedProductsHeadline = "#".repeat(10) + " Zu entfernende Produkte " + "#".repeat(10);
-        currentDate = startDate;
-
-        System.out.println("#".repeat(10) + " Willkommen im SuperDuperMarkt! " + "#".repeat(10));
-
-        for (int day = 1; day < numberOfDays; day++) {
-            List<Product> removedProducts = shelf.removeExpiredProducts(currentDate);
-
-            System.out.println("Tag " + day + " (" + currentDate + "):");
-
-            for (Product product : shelf.getStoredProducts()) {
-                System.out.println(product.toUserInfo(currentDate) + "\n");
-            }
-
-            for (Product removedProduct : removedProducts) {
-                System.out.println(removedProductsHeadline);
-                System.out.println(removedProduct.toUserInfo(currentDate));
-                System.out.println("#".repeat(removedProductsHeadline.length()) + "\n");
-            }
-
-            System.out.println("-".repeat(removedProductsHeadline.length()) + "\n");
-
-            currentDate = currentDate.plusDays(1);
-        }
-    }
-
-    public ProductGroup findProductGroup(String name) {
-        for (ProductGroup group : productGroups) {
-            if (group.getName().equals(name)) {
-                return group;
-            }
-        }
-        throw new IllegalArgumentException("Product group with name '" + name + "' not found.");
-    }
-    
-    // Getter
-
-    public ProductShelf getShelf() {
-        return shelf;
-    }
-
-    public List<ProductGroup> getProductGroups() {
-        return productGroups;
-    }
-
-    public List<CSVProduct> getCsvProducts() {
-        return csvProducts;
-    }
-
-    public LocalDate getStartDate() {
-        return startDate;
-    }
-
-}
+package de.gribovskij.supdupmarket;
+
+import de.gribovskij.supdupmarket.csv.CSVExporter;
+import de.gribovskij.supdupmarket.csv.CSVImportException;
+import de.gribovskij.supdupmarket.csv.CSVImporter;
+import de.gribovskij.supdupmarket.csv.CSVProduct;
+import de.gribovskij.supdupmarket.csv.CSVProductChange;
+import de.gribovskij.supdupmarket.csv.CSVProductCreator;
+import de.gribovskij.supdupmarket.metrics.MarketMetrics;
+import de.gribovskij.supdupmarket.report.DailyReportRenderer;
+import de.gribovskij.supdupmarket.report.ReportSink;
+import de.gribovskij.supdupmarket.snapshot.ShelfSnapshot;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The MarketService class represents a simulation of a market system. It
+ * manages the lifecycle of products and product groups, performs initialization
+ * from CSV files, and runs a simulation over a specified number of days to
+ * simulate daily market activities.
+ *
+ * This class initializes product groups such as Cheese, Wine, and Meat, each
+ * with specific rules for quality management, expiry handling, and pricing
+ * strategies. It also reads products from a CSV file, associates them with
+ * their respective groups, and manages their lifecycle through daily
+ * simulations.
+ *
+ * The simulation starts from a specified start date and runs for a specified
+ * number of days, during which it tracks and manages the expiration and removal
+ * of products based on their expiry dates.
+ *
+ * @author Eugen Gribovskij
+ */
+public class MarketService {
+
+    private final ProductShelf shelf;
+    private final ProductGroupRegistry productGroups;
+    private List<CSVProduct> csvProducts;
+    private final LocalDate startDate;
+
+    public MarketService() {
+        this.shelf = new ProductShelf(new ArrayList<>());
+        this.productGroups = createProductGroups();
+        this.csvProducts = new ArrayList<>();
+        this.startDate = LocalDate.now();
+        initializeProducts();
+    }
+
+    /**
+     * Creates a market service from a previously written shelf snapshot
+     * instead of importing the products from CSV.
+     *
+     * @param snapshot the snapshot with the product groups and the shelf
+     * @see #writeSnapshot(String)
+     */
+    public MarketService(ShelfSnapshot snapshot) {
+        this.shelf = snapshot.getShelf();
+        this.productGroups = new ProductGroupRegistry();
+        for (ProductGroup productGroup : snapshot.getProductGroups()) {
+            productGroups.register(productGroup);
+        }
+        this.csvProducts = new ArrayList<>();
+        this.startDate = LocalDate.now();
+    }
+
+    private void initializeProducts() {
+
+        CSVProductCreator csvProductCreator = new CSVProductCreator();
+        csvProductCreator.createCsvProducts();
+        csvProducts = csvProductCreator.getCsvProducts();
+        CSVExporter.writeProductsToCSV("src/main/resources/products.csv", csvProducts);
+
+        importProducts("src/main/resources/products.csv");
+
+    }
+
+    /**
+     * Imports the products of a CSV file and places every product on the shelf
+     * as soon as its row is read. Products which are not marketable anymore are
+     * not added to the shelf.
+     *
+     * @param filePath the path to the CSV file
+     * @return the number of read products
+     * @throws CSVImportException if the file cannot be read completely; the
+     * products read before stay on the shelf
+     */
+    public long importProducts(String filePath) {
+        return CSVImporter.importProductRowsFromCSV(filePath,
+                (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> shelf.addProduct(
+                        createProduct(name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName), startDate));
+    }
+
+    /**
+     * Applies a CSV change file to the products on the shelf. Every row adds a
+     * product, removes the products of a batch or replaces the products of a
+     * batch by the product of the row. A batch is identified by the
+     * {@link ProductKey} of the row. Replaced products keep their id and store date;
+     * updates of batches which are not stored are added like new products.
+     *
+     * <p>
+     * The batches are looked up through the key index of the shelf, so the
+     * effort depends on the number of changes and not on the number of stored
+     * products.</p>
+     *
+     * @param filePath the path to the CSV change file
+     * @param currentDate the date the changes are applied
+     * @return the number of applied changes
+     * @throws CSVImportException if the file cannot be read completely; the
+     * changes read before stay applied
+     * @see CSVImporter#importProductChangesFromCSV(String, java.util.function.Consumer)
+     */
+    public long applyProductChanges(String filePath, LocalDate currentDate) {
+        return CSVImporter.importProductChangesFromCSV(filePath, change -> applyProductChange(change, currentDate));
+    }
+
+    private void applyProductChange(CSVProductChange change, LocalDate currentDate) {
+        ProductKey key = new ProductKey(change.getName(), change.getProductGroupName(), change.getExpiryDate());
+        switch (change.getOperation()) {
+            case ADD ->
+                shelf.addProduct(createProduct(change), currentDate);
+            case REMOVE ->
+                shelf.removeProducts(key);
+            case UPDATE -> {
+                List<Product> storedProducts = shelf.findProducts(key);
+                if (storedProducts.isEmpty()) {
+                    shelf.addProduct(createProduct(change), currentDate);
+                }
+                for (Product storedProduct : storedProducts) {
+                    Product product = new Product(storedProduct.getId(), change.getName(), change.getBasePrice(), change.getExpiryDate(),
+                            change.getStartQuality(), change.getProductGroupName(), storedProduct.getProductGroup());
+                    shelf.replaceProduct(storedProduct, product, currentDate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Exports all products currently stored on the shelf to a CSV file, e.g.
+     * as end of day snapshot.
+     *
+     * @param filePath the path to the CSV file
+     * @return the number of exported products
+     * @throws IOException if the file cannot be written
+     */
+    public long exportProducts(String filePath) throws IOException {
+        return CSVExporter.writeShelfProductsToCSV(filePath, shelf.snapshot().iterator());
+    }
+
+    /**
+     * Writes the shelf and the product groups to a binary snapshot file, which
+     * can be restored by {@link ShelfSnapshot#read(Path)}.
+     *
+     * @param filePath the path of the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSnapshot(String filePath) throws IOException {
+        ShelfSnapshot.write(Path.of(filePath), shelf, productGroups.getProductGroups());
+    }
+
+    /**
+     * Imports the products of a CSV file using several threads. The file is
+     * parsed in chunks, the product groups are resolved on the parsing threads
+     * and the products of every chunk are added to the shelf in bulk.
+     *
+     * @param filePath the path to the CSV file
+     * @param parallelism the number of threads used to parse the file
+     * @param preserveOrder true to add the products in file order, false to
+     * add every chunk as soon as it is parsed
+     * @return the number of read products
+     * @throws CSVImportException if the file cannot be read completely or the
+     * import is interrupted; the chunks read before stay on the shelf
+     */
+    public long importProductsInParallel(String filePath, int parallelism, boolean preserveOrder) {
+        return CSVImporter.importProductsFromCSVInParallel(filePath, parallelism, preserveOrder,
+                this::createProduct, products -> shelf.addProducts(products, startDate));
+    }
+
+    private Product createProduct(CSVProduct csvProduct) {
+        return new Product(
+                csvProduct.getName(),
+                csvProduct.getBasePrice(),
+                csvProduct.getExpiryDate(),
+                csvProduct.getStartQuality(),
+                csvProduct.getProductGroupName(),
+                findProductGroup(csvProduct.getProductGroupName()));
+    }
+
+    private Product createProduct(String name, long basePrice, long expiryEpochDay, int startQuality, long storeEpochDay, String productGroupName) {
+        return new Product(
+                name,
+                basePrice,
+                LocalDate.ofEpochDay(expiryEpochDay),
+                startQuality,
+                productGroupName,
+                findProductGroup(productGroupName));
+    }
+
+    /**
+     * Creates the cheese, wine and meat groups of the market with their rules.
+     * Every call returns new groups, which can be changed or frozen by the
+     * caller, e.g. by a {@link ProductCatalog}.
+     *
+     * @return a new registry with the product groups of the market
+     */
+    public static ProductGroupRegistry createProductGroups() {
+        ProductGroupRegistry productGroups = new ProductGroupRegistry();
+        ProductRuleSet cheeseRuleSet = new ProductRuleSet(
+                true, // Expiring
+                ProductQualityChange.DECREASE, // Quality decreases
+                true, // Daily price change
+                1, // Quality change factor
+                30, // Lowest quality boundary
+                100, // Highest quality boundary
+                1, // Days until quality change
+                false, // Expiry discount
+                0 // Expire discount in percent
+        );
+        productGroups.register(new ProductGroup("Cheese", "Kaese", cheeseRuleSet));
+
+        ProductRuleSet wineRuleSet = new ProductRuleSet(
+                false, // Not expiring
+                ProductQualityChange.INCREASE, // Quality increases
+                false, // No daily price change
+                1, // Quality change factor
+                1, // Lowest quality boundary
+                50, // Highest quality boundary
+                10, // Days until quality change
+                false, // Expiry discount
+                0 // Expire discount in percent
+        );
+        productGroups.register(new ProductGroup("Wine", "Wein", wineRuleSet));
+
+        ProductRuleSet meatRuleSet = new ProductRuleSet(
+                true, // Expiring
+                ProductQualityChange.UNCHANGING, // Quality increases
+                false, // No daily price change
+                0, // Quality change factor
+                1, // Lowest quality boundary
+                1, // Highest quality boundary
+                0, // Days until quality change
+                true, // Expiry discount
+                25 // Expire discount in percent
+        );
+        productGroups.register(new ProductGroup("Meat", "Fleisch", meatRuleSet));
+
+        return productGroups;
+    }
+
+    public void startMarketSimulation(LocalDate currentDate, int numberOfDays) {
+        try {
+            startMarketSimulation(currentDate, numberOfDays, ReportSink.console());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs the market simulation and writes the daily reports to the given
+     * sink instead of the console. The reports are written by a separate
+     * writer thread, see {@link DailyReportRenderer#async(ReportSink)}.
+     *
+     * @param currentDate the start date of the simulation
+     * @param numberOfDays the number of days to simulate
+     * @param reportSink the sink of the reports, e.g.
+     * {@link ReportSink#none()} to switch the output off; it is closed at the
+     * end of the simulation
+     * @throws IOException if the report cannot be written
+     */
+    public void startMarketSimulation(LocalDate currentDate, int numberOfDays, ReportSink reportSink) throws IOException {
+        try (DailyReportRenderer renderer = DailyReportRenderer.async(reportSink)) {
+            runMarketSimulation(numberOfDays, null, renderer);
+        }
+    }
+
+    public void startParallelMarketSimulation(LocalDate currentDate, int numberOfDays, int parallelism) {
+        try {
+            startParallelMarketSimulation(currentDate, numberOfDays, parallelism, ReportSink.console());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs the market simulation like
+     * {@link #startMarketSimulation(LocalDate, int, ReportSink)}, but renders
+     * the products of each day in parallel. The current version of the shelf
+     * is split into parts, which are rendered by a {@link ForkJoinPool} and
+     * written in shelf order, so the output is identical to the sequential
+     * simulation.
+     *
+     * @param currentDate the start date of the simulation
+     * @param numberOfDays the number of days to simulate
+     * @param parallelism the number of threads used per day
+     * @param reportSink the sink of the reports; it is closed at the end of
+     * the simulation
+     * @throws IOException if the report cannot be written
+     * @see DailyReportRenderer#renderDay(long, LocalDate, ProductShelfVersion, List, ForkJoinPool)
+     */
+    public void startParallelMarketSimulation(LocalDate currentDate, int numberOfDays, int parallelism, ReportSink reportSink) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (DailyReportRenderer renderer = DailyReportRenderer.async(reportSink)) {
+            runMarketSimulation(numberOfDays, pool, renderer);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs the market simulation event driven. Only the days on which the
+     * quality or price of a product changes or products leave the shelf are
+     * visited, and only the affected products are printed.
+     *
+     * @param currentDate the start date of the simulation
+     * @param numberOfDays the number of days to simulate
+     * @return the number of processed events
+     * @see MarketEventSimulation
+     */
+    public int startEventDrivenMarketSimulation(LocalDate currentDate, int numberOfDays) {
+        return new MarketEventSimulation(shelf).run(startDate, numberOfDays);
+    }
+
+    /**
+     * Runs the market simulation event driven like
+     * {@link #startEventDrivenMarketSimulation(LocalDate, int)}, but writes
+     * the reports to the given sink instead of the console.
+     *
+     * @param currentDate the start date of the simulation
+     * @param numberOfDays the number of days to simulate
+     * @param reportSink the sink of the reports; it is closed at the end of
+     * the simulation
+     * @return the number of processed events
+     * @throws IOException if the report cannot be written
+     */
+    public int startEventDrivenMarketSimulation(LocalDate currentDate, int numberOfDays, ReportSink reportSink) throws IOException {
+        return new MarketEventSimulation(shelf).run(startDate, numberOfDays, reportSink);
+    }
+
+    private void runMarketSimulation(int numberOfDays, ForkJoinPool pool, DailyReportRenderer renderer) throws IOException {
+        LocalDate currentDate = startDate;
+
+        renderer.renderWelcome();
+
+        for (int day = 1; day < numberOfDays; day++) {
+            long startNanos = System.nanoTime();
+            List<Product> removedProducts = shelf.removeExpiredProducts(currentDate);
+            ProductShelfVersion storedProducts = shelf.snapshot();
+
+            if (pool != null) {
+                renderer.renderDay(day, currentDate, storedProducts, removedProducts, pool);
+            } else {
+                renderer.renderDay(day, currentDate, storedProducts, removedProducts);
+            }
+            MarketMetrics.SIMULATION_DAY_NANOS.recordNanosSince(startNanos);
+
+            currentDate = currentDate.plusDays(1);
+        }
+    }
+
+    public ProductGroup findProductGroup(String name) {
+        return productGroups.getProductGroup(name);
+    }
+    
+    // Getter
+
+    public ProductShelf getShelf() {
+        return shelf;
+    }
+
+    public List<ProductGroup> getProductGroups() {
+        return productGroups.getProductGroups();
+    }
+
+    public ProductGroupRegistry getProductGroupRegistry() {
+        return productGroups;
+    }
+
+    public List<CSVProduct> getCsvProducts() {
+        return csvProducts;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+}
@@ -0,0 +1,100 @@
+package de.gribovskij.supdupmarket;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Utility class for money amounts, which are represented as {@code long}
+ * cents throughout the market.
+ *
+ * <p>
+ * Calculating in cents is exact, so prices calculated in batches, for single
+ * products or by the point of sale always agree. Fractions of a cent, e.g. of
+ * a discount, are rounded half up.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public final class Money {
+
+    public static final long CENTS_PER_EURO = 100;
+
+    private Money() {
+    }
+
+    /**
+     * Converts an amount in euros to cents, rounding half up.
+     *
+     * @param euros the amount in euros
+     * @return the amount in cents
+     */
+    public static long ofEuros(double euros) {
+        return BigDecimal.valueOf(euros).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Parses an amount in euros with a decimal point, e.g. {@code 75.0} or
+     * {@code 1234.567}, to cents, rounding half up.
+     *
+     * @param euros the amount in euros
+     * @return the amount in cents
+     * @throws NumberFormatException if the text is no decimal number
+     */
+    public static long parseEuros(String euros) {
+        return new BigDecimal(euros.strip()).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Calculates the given percentage of an amount, rounding half up to whole
+     * cents.
+     *
+     * @param cents the amount in cents
+     * @param percent the percentage
+     * @return the percentage of the amount in cents
+     */
+    public static long percentOf(long cents, int percent) {
+        return Math.floorDiv(cents * percent + 50, 100);
+    }
+
+    /**
+     * Appends an amount in cents as euros with two decimals and a decimal
+     * point, e.g. {@code 75.00}, without creating intermediate objects.
+     *
+     * @param cents the amount in cents
+     * @param target the builder to append to
+     * @return the given builder
+     */
+    public static StringBuilder appendEuros(long cents, StringBuilder target) {
+        return appendEuros(cents, '.', target);
+    }
+
+    /**
+     * Appends an amount in cents as euros with two decimals and the given
+     * decimal separator, e.g. {@code 75,00}, without creating intermediate
+     * objects.
+     *
+     * @param cents the amount in cents
+     * @param decimalSeparator the separator of the decimals
+     * @param target the builder to append to
+     * @return the given builder
+     */
+    public static StringBuilder appendEuros(long cents, char decimalSeparator, StringBuilder target) {
+        if (cents < 0) {
+            target.append('-');
+        }
+        long euros = Math.abs(cents / CENTS_PER_EURO);
+        int fraction = (int) Math.abs(cents % CENTS_PER_EURO);
+        return target.append(euros).append(decimalSeparator).append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+    }
+
+    /**
+     * Formats an amount in cents as euros with two decimals and a decimal
+     * point, e.g. {@code 75.00}.
+     *
+     * @param cents the amount in cents
+     * @return the formatted amount
+     */
+    public static String formatEuros(long cents) {
+        return appendEuros(cents, new StringBuilder(24)).toString();
+    }
+
+}
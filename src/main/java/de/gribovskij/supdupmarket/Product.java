@@ -1,303 +1,377 @@
-package de.gribovskij.supdupmarket;
-
-import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.util.Objects;
-
-/**
- * Represents a product in the supermarket with attributes such as name, base
- * price, expiry date, quality, and its associated product group.
- *
- * <p>
- * This class provides methods to check the marketability of a product and
- * standard overrides for equality and hashing.</p>
- *
- * @author Eugen Gribovskij
- */
-public class Product {
-
-    private String name;
-
-    private final double basePrice;
-
-    // The date then a product is not suitable for sale anymore
-    private LocalDate expiryDate;
-
-    private final int startQuality;
-
-    // The date, when the product got added to a shelf
-    private LocalDate storeDate;
-
-    private String productGroupName;
-
-    private ProductGroup productGroup;
-
-    private int currentQuality;
-
-    /**
-     * Constructs a new {@code Product} with the specified attributes.
-     *
-     * <p>
-     * Initializes the product with a name, base price, expiry date, starting
-     * quality, and associated product group. If the product's rules indicate it
-     * is not perishable, the expiry date is set to the maximum possible
-     * date.</p>
-     *
-     * @param name the product's name; must not be {@code null}
-     * @param basePrice the initial price; must be non-negative
-     * @param expiryDate the expiry date if perishable; otherwise must be set to
-     * LocalDate.MAX
-     * @param startQuality the initial quality; must be non-negative
-     * @param productGroupName the name associated to the product group
-     * @param productGroup the associated product group
-     *
-     * @throws IllegalArgumentException if {@code basePrice} or
-     * {@code startQuality} is negative
-     * @throws NullPointerException if {@code name} or {@code productGroup} is
-     * {@code null}
-     */
-    public Product(String name, double basePrice, LocalDate expiryDate, int startQuality, String productGroupName, ProductGroup productGroup) {
-        if (basePrice < 0) {
-            throw new IllegalArgumentException("Base price cannot be negative");
-        }
-        if (startQuality < 0) {
-            throw new IllegalArgumentException("Quality cannot be negative");
-        }
-        this.name = name;
-        this.basePrice = basePrice;
-        if (!productGroup.getProductRule().isExpiring() && !expiryDate.equals(LocalDate.MAX)) {
-            throw new IllegalArgumentException("expiryDate must be initialized with LocalDate.MAX, if product cannot expire");
-        }
-        this.expiryDate = productGroup.getProductRule().isExpiring() ? expiryDate : LocalDate.MAX;
-        this.startQuality = startQuality;
-        this.productGroupName = productGroupName;
-        this.productGroup = productGroup;
-    }
-
-    /**
-     * Checks if a product is suitable for sale. A product is considered not
-     * marketable if it meets any of the following conditions: - It is expired
-     * according to the product rules. - Its quality falls below the acceptable
-     * boundary defined by the product rules. - Its expiry date is not today's
-     * date or after.
-     *
-     * @param checkDate the date when the check for marketability was done
-     * @return true if the product is marketable, false otherwise(breaches a
-     * product rule)
-     */
-    public boolean isMarketable(LocalDate checkDate) {
-        ProductRuleSet productRuleSet = this.productGroup.getProductRule();
-
-        if (productRuleSet.isExpiring()) {
-            // Check if the product is expired (expiry date is today or earlier) or quality is below the threshold
-            return !expiryDate.isBefore(checkDate.plusDays(1)) && getCurrentQuality(checkDate) >= productRuleSet.getLowestQualityBoundary();
-        }
-
-        // For non-expiring products, only check quality
-        return getCurrentQuality(checkDate) > productRuleSet.getLowestQualityBoundary();
-    }
-
-    public String marketableInfo(LocalDate currentDate) {
-        ProductRuleSet productRuleSet = productGroup.getProductRule();
-
-        if (getCurrentQuality(currentDate) < productRuleSet.getLowestQualityBoundary()) {
-            return "Nein - Qualitaetsanforderung unterschritten - bitte aus dem Regal raeumen!";
-        }
-        if (expiryDate.isBefore(currentDate.plusDays(1))) {
-            return "Nein - das Produkt ist abgelaufen - bitte aus dem Regal raeumen!";
-        } else {
-            return "Ja";
-        }
-
-    }
-
-    /**
-     * Provides a user friendly string representation of the product's current
-     * status.
-     *
-     * @param currentDate the current date for calculating quality and price
-     * @return a formatted string with the product's details
-     */
-    public String toUserInfo(LocalDate currentDate) {
-        String expiryDateString = expiryDate.equals(LocalDate.MAX) ? "kein Ablaufdatum" : expiryDate.toString();
-
-        return String.format("""
-                             Produkt: %s
-                             Artikelgruppe: %s
-                             Grundpreis: %.2f Euro
-                             Ablaufdatum: %s
-                             Minimal zugelassene Qualitaet: %d
-                             Aktuelle Qualitaetswertung: %d
-                             Aktueller Tagespreis: %.2f Euro
-                             Marktfaehig: %s""",
-                name,
-                productGroup.getUserFriendlyName(),
-                basePrice,
-                expiryDateString,
-                productGroup.getProductRule().getLowestQualityBoundary(),
-                getCurrentQuality(currentDate),
-                getCurrentPrice(currentDate),
-                marketableInfo(currentDate)
-        );
-    }
-
-    @Override
-    public String toString() {
-        return "Product{" + "name=" + name + ", basePrice=" + basePrice + ", expiryDate=" + expiryDate + ", startQuality=" + startQuality + ", storeDate=" + storeDate + ", productGroup=" + productGroup + '}';
-    }
-
-    @Override
-    public int hashCode() {
-        int hash = 7;
-        return hash;
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (this == obj) {
-            return true;
-        }
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
-            return false;
-        }
-        final Product other = (Product) obj;
-        if (Double.doubleToLongBits(this.basePrice) != Double.doubleToLongBits(other.basePrice)) {
-            return false;
-        }
-        if (this.startQuality != other.startQuality) {
-            return false;
-        }
-        if (!Objects.equals(this.name, other.name)) {
-            return false;
-        }
-        return Objects.equals(this.expiryDate, other.expiryDate);
-    }
-
-    // Getter / Setter
-    /**
-     * Calculates the current quality of the product based on the rules defined
-     * in the associated ProductRuleSet. The calculation considers the elapsed
-     * time since the product was placed in the shelf.
-     *
-     * - If the quality is unchanging, the initial quality is returned. - If the
-     * quality increases, the quality is incremented based on the intervals and
-     * a defined increase factor, up to a maximum limit. - If the quality
-     * decreases, the quality is decremented based on the intervals and a
-     * defined decrease factor.
-     *
-     * @param currentDate the current date to compare against the storage date
-     * @return the calculated current quality
-     */
-    public int getCurrentQuality(LocalDate currentDate) {
-        ProductRuleSet productRuleSet = productGroup.getProductRule();
-
-        long daysBetweenStoreAndToday = ChronoUnit.DAYS.between(storeDate, currentDate);
-
-        // Calculates the number of intervals since shelving during which the quality changes
-        int qualityChangeIntervalls = 0;
-
-        // Calculates the number of intervals since shelving during which the quality changes
-        if (productRuleSet.getQualityChange() != ProductQualityChange.UNCHANGING) {
-            qualityChangeIntervalls = (int) (daysBetweenStoreAndToday / productRuleSet.getDaysUntilQualityChange());
-        }
-
-        if (productRuleSet.getQualityChange() == ProductQualityChange.UNCHANGING) {
-            return startQuality;
-        }
-
-        if (productRuleSet.getQualityChange() == ProductQualityChange.INCREASE) {
-            currentQuality = startQuality + (qualityChangeIntervalls * productRuleSet.getQualityChangeFactor());
-
-            if (currentQuality > productRuleSet.getHighestQualityBoundary()) {
-                return productRuleSet.getHighestQualityBoundary();
-            }
-
-        }
-
-        if (productRuleSet.getQualityChange() == ProductQualityChange.DECREASE) {
-            currentQuality = startQuality - (qualityChangeIntervalls * productRuleSet.getQualityChangeFactor());
-        }
-
-        return currentQuality;
-
-    }
-
-    /**
-     * Calculates the current price of the product based on its base price and
-     * current quality. If the product's price changes daily, the price is
-     * adjusted by adding a factor based on the quality. Additionally, if an
-     * expiry discount is applicable and today is exactly one day before the
-     * product's expiry date, the price is adjusted by subtracting a discount
-     * factor from the base price with quality adjustments.
-     *
-     * @param currentDate the current date used to calculate the current quality
-     * @return the current price of the product
-     */
-    public double getCurrentPrice(LocalDate currentDate) {
-        ProductRuleSet productRuleSet = productGroup.getProductRule();
-
-        double qualityPriceFactor = 0.10 * getCurrentQuality(currentDate);
-        double basePriceWithQualityFactor = basePrice + qualityPriceFactor;
-
-        int discountPercent = productRuleSet.getExpiryDiscountInPercent();
-        double discountFactor = discountPercent / 100.0;
-        double discountPriceFactor = basePriceWithQualityFactor * discountFactor;
-
-        LocalDate oneDayBeforeExpiry = expiryDate.minusDays(1);
-        boolean isOneDayBeforeExpiry = currentDate.isEqual(oneDayBeforeExpiry);
-
-        if (productRuleSet.isDailyPrice() && productRuleSet.isExpiryDiscount() && isOneDayBeforeExpiry) {
-            return basePriceWithQualityFactor - discountPriceFactor;
-        } else if (productRuleSet.isExpiryDiscount() && isOneDayBeforeExpiry || expiryDate.isEqual(currentDate)) {
-            return basePrice - discountPriceFactor;
-        } else if (productRuleSet.isDailyPrice()) {
-            return basePriceWithQualityFactor;
-        } else {
-            return basePrice;
-        }
-    }
-
-    public String getName() {
-        return name;
-    }
-
-    public double getBasePrice() {
-        return basePrice;
-    }
-
-    public LocalDate getExpiryDate() {
-        return expiryDate;
-    }
-
-    public int getStartQuality() {
-        return startQuality;
-    }
-
-    public ProductGroup getProductGroup() {
-        return productGroup;
-    }
-
-    public void setStoreDate(LocalDate storeDate) {
-        this.storeDate = storeDate;
-    }
-
-    public void setProductGroup(ProductGroup productGroup) {
-        this.productGroup = productGroup;
-    }
-
-    public LocalDate getStoreDate() {
-        return storeDate;
-    }
-
-    public String getProductGroupName() {
-        return productGroupName;
-    }
-
-    public void setProductGroupName(String productGroupName) {
-        this.productGroupName = productGroupName;
-    }
-
-}
+package de.gribovskij.supdupmarket;
+
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents a product in the supermarket with attributes such as name, base
+ * price, expiry date, quality, and its associated product group.
+ *
+ * <p>
+ * This class provides methods to check the marketability of a product and
+ * standard overrides for equality and hashing. Every product carries a unique
+ * id, which identifies it independent of its attributes; two products are
+ * equal if they have the same id.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class Product {
+
+    // Source of the generated product ids
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    // Typical length of the user info, to size its builder
+    private static final int USER_INFO_LENGTH = 256;
+
+    // Prices in the user info use the decimal separator of the default locale
+    private static final char DECIMAL_SEPARATOR = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
+
+    private final long id;
+
+    private String name;
+
+    // The base price in cents
+    private final long basePriceInCents;
+
+    // The date then a product is not suitable for sale anymore
+    private LocalDate expiryDate;
+
+    private final int startQuality;
+
+    // The date, when the product got added to a shelf
+    private LocalDate storeDate;
+
+    private String productGroupName;
+
+    private ProductGroup productGroup;
+
+    // The last evaluation, immutable and therefore safe to share between threads
+    private ProductDayEvaluation dayEvaluation;
+
+    /**
+     * Constructs a new {@code Product} with the specified attributes.
+     *
+     * <p>
+     * Initializes the product with a name, base price, expiry date, starting
+     * quality, and associated product group. If the product's rules indicate it
+     * is not perishable, the expiry date is set to the maximum possible
+     * date.</p>
+     *
+     * @param name the product's name; must not be {@code null}
+     * @param basePriceInCents the initial price in cents; must be non-negative
+     * @param expiryDate the expiry date if perishable; otherwise must be set to
+     * LocalDate.MAX
+     * @param startQuality the initial quality; must be non-negative
+     * @param productGroupName the name associated to the product group
+     * @param productGroup the associated product group
+     *
+     * @throws IllegalArgumentException if {@code basePriceInCents} or
+     * {@code startQuality} is negative
+     * @throws NullPointerException if {@code name} or {@code productGroup} is
+     * {@code null}
+     */
+    public Product(String name, long basePriceInCents, LocalDate expiryDate, int startQuality, String productGroupName, ProductGroup productGroup) {
+        this(name, basePriceInCents, expiryDate, startQuality, productGroupName, productGroup, NEXT_ID.getAndIncrement());
+    }
+
+    /**
+     * Constructs a new {@code Product} with a known id, e.g. a product restored
+     * from a snapshot or the updated version of a stored product. Ids generated
+     * afterwards are greater than the given id.
+     *
+     * @param id the product's id; must be positive
+     * @param name the product's name; must not be {@code null}
+     * @param basePriceInCents the initial price in cents; must be non-negative
+     * @param expiryDate the expiry date if perishable; otherwise must be set to
+     * LocalDate.MAX
+     * @param startQuality the initial quality; must be non-negative
+     * @param productGroupName the name associated to the product group
+     * @param productGroup the associated product group
+     *
+     * @throws IllegalArgumentException if {@code id} is not positive or
+     * {@code basePriceInCents} or {@code startQuality} is negative
+     * @throws NullPointerException if {@code name} or {@code productGroup} is
+     * {@code null}
+     */
+    public Product(long id, String name, long basePriceInCents, LocalDate expiryDate, int startQuality, String productGroupName, ProductGroup productGroup) {
+        this(name, basePriceInCents, expiryDate, startQuality, productGroupName, productGroup, id);
+        // Only known ids advance the generator, generated ids are taken from it
+        if (NEXT_ID.get() <= id) {
+            NEXT_ID.accumulateAndGet(id + 1, Math::max);
+        }
+    }
+
+    private Product(String name, long basePriceInCents, LocalDate expiryDate, int startQuality, String productGroupName, ProductGroup productGroup, long id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Id must be positive");
+        }
+        if (basePriceInCents < 0) {
+            throw new IllegalArgumentException("Base price cannot be negative");
+        }
+        if (startQuality < 0) {
+            throw new IllegalArgumentException("Quality cannot be negative");
+        }
+        this.id = id;
+        this.name = name;
+        this.basePriceInCents = basePriceInCents;
+        if (!productGroup.getProductRule().isExpiring() && !expiryDate.equals(LocalDate.MAX)) {
+            throw new IllegalArgumentException("expiryDate must be initialized with LocalDate.MAX, if product cannot expire");
+        }
+        this.expiryDate = productGroup.getProductRule().isExpiring() ? expiryDate : LocalDate.MAX;
+        this.startQuality = startQuality;
+        this.productGroupName = productGroupName;
+        this.productGroup = productGroup;
+    }
+
+    /**
+     * Checks if a product is suitable for sale. A product is considered not
+     * marketable if it meets any of the following conditions: - It is expired
+     * according to the product rules. - Its quality falls below the acceptable
+     * boundary defined by the product rules. - Its expiry date is not today's
+     * date or after.
+     *
+     * @param checkDate the date when the check for marketability was done
+     * @return true if the product is marketable, false otherwise(breaches a
+     * product rule)
+     */
+    public boolean isMarketable(LocalDate checkDate) {
+        return evaluate(checkDate).isMarketable();
+    }
+
+    /**
+     * Evaluates the quality, price and marketability of the product for the
+     * given day. The evaluation is calculated once and reused by all following
+     * calls for the same day, until the store date of the product or the rule
+     * set of its product group changes.
+     *
+     * @param currentDate the day to evaluate
+     * @return the evaluation of the product for the day
+     */
+    public ProductDayEvaluation evaluate(LocalDate currentDate) {
+        ProductRuleSet productRuleSet = productGroup.getProductRule();
+        ProductDayEvaluation evaluation = dayEvaluation;
+        if (evaluation == null || !evaluation.isValidFor(currentDate, productRuleSet, storeDate)) {
+            int quality = calculateQuality(currentDate, productRuleSet);
+            long daysUntilExpiry = ChronoUnit.DAYS.between(currentDate, expiryDate);
+            evaluation = new ProductDayEvaluation(currentDate, productRuleSet, storeDate, quality,
+                    productRuleSet.getPrice(basePriceInCents, quality, daysUntilExpiry),
+                    isMarketable(currentDate, quality, productRuleSet));
+            dayEvaluation = evaluation;
+        }
+        return evaluation;
+    }
+
+    private boolean isMarketable(LocalDate checkDate, int currentQuality, ProductRuleSet productRuleSet) {
+        if (productRuleSet.isExpiring()) {
+            // Check if the product is expired (expiry date is today or earlier) or quality is below the threshold
+            return !expiryDate.isBefore(checkDate.plusDays(1)) && currentQuality >= productRuleSet.getLowestQualityBoundary();
+        }
+
+        // For non-expiring products, only check quality
+        return currentQuality > productRuleSet.getLowestQualityBoundary();
+    }
+
+    public String marketableInfo(LocalDate currentDate) {
+        ProductRuleSet productRuleSet = productGroup.getProductRule();
+
+        if (evaluate(currentDate).getQuality() < productRuleSet.getLowestQualityBoundary()) {
+            return "Nein - Qualitaetsanforderung unterschritten - bitte aus dem Regal raeumen!";
+        }
+        if (expiryDate.isBefore(currentDate.plusDays(1))) {
+            return "Nein - das Produkt ist abgelaufen - bitte aus dem Regal raeumen!";
+        } else {
+            return "Ja";
+        }
+
+    }
+
+    /**
+     * Provides a user friendly string representation of the product's current
+     * status.
+     *
+     * @param currentDate the current date for calculating quality and price
+     * @return a formatted string with the product's details
+     * @see #appendUserInfo(LocalDate, StringBuilder)
+     */
+    public String toUserInfo(LocalDate currentDate) {
+        return appendUserInfo(currentDate, new StringBuilder(USER_INFO_LENGTH)).toString();
+    }
+
+    /**
+     * Appends the user friendly representation of the product's current status
+     * like {@link #toUserInfo(LocalDate)}, without a line break at the end.
+     * Numbers and dates are formatted by hand, so nothing is allocated besides
+     * the text itself, e.g. when a daily report of all products is written
+     * into one reused builder.
+     *
+     * @param currentDate the current date for calculating quality and price
+     * @param target the builder to append to
+     * @return the given builder
+     */
+    public StringBuilder appendUserInfo(LocalDate currentDate, StringBuilder target) {
+        ProductDayEvaluation evaluation = evaluate(currentDate);
+
+        target.append("Produkt: ").append(name)
+                .append("\nArtikelgruppe: ").append(productGroup.getUserFriendlyName())
+                .append("\nGrundpreis: ");
+        Money.appendEuros(basePriceInCents, DECIMAL_SEPARATOR, target).append(" Euro\nAblaufdatum: ");
+        if (expiryDate.equals(LocalDate.MAX)) {
+            target.append("kein Ablaufdatum");
+        } else {
+            appendDate(expiryDate, target);
+        }
+        target.append("\nMinimal zugelassene Qualitaet: ").append(productGroup.getProductRule().getLowestQualityBoundary())
+                .append("\nAktuelle Qualitaetswertung: ").append(evaluation.getQuality())
+                .append("\nAktueller Tagespreis: ");
+        Money.appendEuros(evaluation.getPriceInCents(), DECIMAL_SEPARATOR, target).append(" Euro\nMarktfaehig: ");
+        return target.append(marketableInfo(currentDate));
+    }
+
+    /**
+     * Appends a date in the ISO format {@code yyyy-MM-dd} of
+     * {@link LocalDate#toString()}.
+     */
+    private static void appendDate(LocalDate date, StringBuilder target) {
+        int year = date.getYear();
+        if (year < 1000 || year > 9999) {
+            target.append(date);
+            return;
+        }
+        int month = date.getMonthValue();
+        int day = date.getDayOfMonth();
+        target.append(year).append('-')
+                .append((char) ('0' + month / 10)).append((char) ('0' + month % 10)).append('-')
+                .append((char) ('0' + day / 10)).append((char) ('0' + day % 10));
+    }
+
+    @Override
+    public String toString() {
+        return "Product{" + "id=" + id + ", name=" + name + ", basePriceInCents=" + basePriceInCents + ", expiryDate=" + expiryDate + ", startQuality=" + startQuality + ", storeDate=" + storeDate + ", productGroup=" + productGroup + '}';
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final Product other = (Product) obj;
+        return this.id == other.id;
+    }
+
+    // Getter / Setter
+    /**
+     * Calculates the current quality of the product based on the rules defined
+     * in the associated ProductRuleSet. The calculation considers the elapsed
+     * time since the product was placed in the shelf.
+     *
+     * - If the quality is unchanging, the initial quality is returned. - If the
+     * quality increases, the quality is incremented based on the intervals and
+     * a defined increase factor, up to a maximum limit. - If the quality
+     * decreases, the quality is decremented based on the intervals and a
+     * defined decrease factor.
+     *
+     * @param currentDate the current date to compare against the storage date
+     * @return the calculated current quality
+     * @see #evaluate(LocalDate)
+     */
+    public int getCurrentQuality(LocalDate currentDate) {
+        return evaluate(currentDate).getQuality();
+    }
+
+    private int calculateQuality(LocalDate currentDate, ProductRuleSet productRuleSet) {
+        // Products of unchanging quality may be evaluated before they are stored
+        long daysBetweenStoreAndToday = storeDate == null ? 0 : ChronoUnit.DAYS.between(storeDate, currentDate);
+        return productRuleSet.getQualityAfterDays(startQuality, daysBetweenStoreAndToday);
+    }
+
+    /**
+     * Calculates the first date on or after the store date on which the
+     * product is not marketable anymore. This is the date on which
+     * {@link #isMarketable(LocalDate)} starts to return false, calculated in
+     * constant time by the associated {@link ProductRuleSet}.
+     *
+     * @return the first non marketable date or {@link LocalDate#MAX} if the
+     * product stays marketable forever
+     * @throws NullPointerException if the product was not stored yet
+     */
+    public LocalDate getUnmarketableDate() {
+        Objects.requireNonNull(storeDate, "Product must be stored before");
+        return productGroup.getProductRule().getUnmarketableDate(startQuality, storeDate, expiryDate);
+    }
+
+    /**
+     * Calculates the current price of the product based on its base price and
+     * current quality. If the product's price changes daily, the price is
+     * adjusted by adding a factor based on the quality. Additionally, if an
+     * expiry discount is applicable and today is exactly one day before the
+     * product's expiry date, the price is adjusted by subtracting a discount
+     * factor from the base price with quality adjustments.
+     *
+     * @param currentDate the current date used to calculate the current quality
+     * @return the current price of the product in cents
+     * @see #evaluate(LocalDate)
+     */
+    public long getCurrentPriceInCents(LocalDate currentDate) {
+        return evaluate(currentDate).getPriceInCents();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getBasePriceInCents() {
+        return basePriceInCents;
+    }
+
+    public LocalDate getExpiryDate() {
+        return expiryDate;
+    }
+
+    public int getStartQuality() {
+        return startQuality;
+    }
+
+    public ProductGroup getProductGroup() {
+        return productGroup;
+    }
+
+    public void setStoreDate(LocalDate storeDate) {
+        this.storeDate = storeDate;
+    }
+
+    public void setProductGroup(ProductGroup productGroup) {
+        this.productGroup = productGroup;
+    }
+
+    public LocalDate getStoreDate() {
+        return storeDate;
+    }
+
+    public String getProductGroupName() {
+        return productGroupName;
+    }
+
+    public void setProductGroupName(String productGroupName) {
+        this.productGroupName = productGroupName;
+    }
+
+}
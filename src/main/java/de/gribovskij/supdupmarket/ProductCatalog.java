@@ -0,0 +1,90 @@
+package de.gribovskij.supdupmarket;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An immutable catalog of product groups, shared by the shelves of many
+ * stores.
+ *
+ * <p>
+ * The catalog is fixed when it is created: no group can be added or removed
+ * afterwards and the rule sets of its groups cannot be changed anymore, so it
+ * can be read by any number of threads without locking.
+ * The products of all stores reference the same {@link ProductGroup}
+ * instances, so one catalog holds every group and rule set only once, no
+ * matter how many stores use it.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public final class ProductCatalog {
+
+    private final ProductGroupRegistry productGroups;
+
+    private final List<ProductGroup> productGroupList;
+
+    private ProductCatalog(ProductGroupRegistry productGroups) {
+        this.productGroups = productGroups;
+        this.productGroupList = List.copyOf(productGroups.getProductGroups());
+    }
+
+    /**
+     * Creates a catalog of the given product groups. The groups are frozen,
+     * {@link ProductGroup#setProductRule(ProductRuleSet)} fails for them from
+     * now on.
+     *
+     * @param productGroups the product groups of the catalog
+     * @return the catalog
+     * @throws IllegalArgumentException if two different groups have the same
+     * name
+     */
+    public static ProductCatalog of(Collection<ProductGroup> productGroups) {
+        ProductGroupRegistry registry = new ProductGroupRegistry();
+        for (ProductGroup productGroup : productGroups) {
+            registry.register(productGroup);
+        }
+        for (ProductGroup productGroup : registry.getProductGroups()) {
+            productGroup.freeze();
+        }
+        return new ProductCatalog(registry);
+    }
+
+    /**
+     * Returns the product group with the given name.
+     *
+     * @param name the name of the product group
+     * @return the product group
+     * @throws IllegalArgumentException if the catalog has no group with the
+     * name
+     */
+    public ProductGroup getProductGroup(String name) {
+        return productGroups.getProductGroup(name);
+    }
+
+    /**
+     * Returns the id of the product group with the given name, see
+     * {@link ProductGroupRegistry#getId(String)}.
+     *
+     * @param name the name of the product group
+     * @return the id of the product group or -1 if the catalog has no group
+     * with the name
+     */
+    public int getId(String name) {
+        return productGroups.getId(name);
+    }
+
+    public int size() {
+        return productGroupList.size();
+    }
+
+    // Getter
+    /**
+     * Returns the product groups of the catalog, ordered by their id.
+     *
+     * @return an unmodifiable list of the product groups
+     */
+    public List<ProductGroup> getProductGroups() {
+        return productGroupList;
+    }
+
+}
@@ -0,0 +1,71 @@
+package de.gribovskij.supdupmarket;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * The quality, price and marketability of a product on one day.
+ *
+ * <p>
+ * An evaluation is immutable. It is created by
+ * {@link Product#evaluate(LocalDate)} and reused by all callers asking for the
+ * same product on the same day, until the date, the store date of the product
+ * or the {@link ProductRuleSet} of its group changes.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public final class ProductDayEvaluation {
+
+    private final LocalDate date;
+
+    // The rule set and store date the values were calculated with
+    private final ProductRuleSet productRuleSet;
+
+    private final LocalDate storeDate;
+
+    private final int quality;
+
+    // The price in cents
+    private final long priceInCents;
+
+    private final boolean marketable;
+
+    ProductDayEvaluation(LocalDate date, ProductRuleSet productRuleSet, LocalDate storeDate, int quality, long priceInCents, boolean marketable) {
+        this.date = date;
+        this.productRuleSet = productRuleSet;
+        this.storeDate = storeDate;
+        this.quality = quality;
+        this.priceInCents = priceInCents;
+        this.marketable = marketable;
+    }
+
+    /**
+     * Checks if the evaluation is still valid for the given day.
+     *
+     * @param date the day to evaluate
+     * @param productRuleSet the current rule set of the product's group
+     * @param storeDate the current store date of the product
+     * @return true if the evaluation can be reused
+     */
+    boolean isValidFor(LocalDate date, ProductRuleSet productRuleSet, LocalDate storeDate) {
+        return this.productRuleSet == productRuleSet && this.date.equals(date) && Objects.equals(this.storeDate, storeDate);
+    }
+
+    // Getter
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public int getQuality() {
+        return quality;
+    }
+
+    public long getPriceInCents() {
+        return priceInCents;
+    }
+
+    public boolean isMarketable() {
+        return marketable;
+    }
+
+}
@@ -0,0 +1,106 @@
+package de.gribovskij.supdupmarket;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the product groups known to the market.
+ *
+ * <p>
+ * Every product group is registered once under its name and gets a dense id,
+ * starting with 0 in the order of registration. Groups are resolved by name
+ * through a hash map and by id through a list, so both lookups take constant
+ * time regardless of the number of groups. The ids are shared by the
+ * importers and the shelves, e.g. {@link ColumnarProductShelf} stores the id
+ * of the product group of every product.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class ProductGroupRegistry {
+
+    private final List<ProductGroup> productGroups;
+
+    private final Map<String, Integer> productGroupIds;
+
+    public ProductGroupRegistry() {
+        this.productGroups = new ArrayList<>();
+        this.productGroupIds = new HashMap<>();
+    }
+
+    /**
+     * Registers a product group. Registering the same group again returns its
+     * existing id.
+     *
+     * @param productGroup the product group to register
+     * @return the id of the product group
+     * @throws IllegalArgumentException if another group with the same name is
+     * already registered
+     */
+    public int register(ProductGroup productGroup) {
+        Integer id = productGroupIds.putIfAbsent(productGroup.getName(), productGroups.size());
+        if (id == null) {
+            productGroups.add(productGroup);
+            return productGroups.size() - 1;
+        }
+        if (productGroups.get(id) != productGroup) {
+            throw new IllegalArgumentException("Product group with name '" + productGroup.getName() + "' already registered.");
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the product group with the given name.
+     *
+     * @param name the name of the product group
+     * @return the id of the product group or -1 if no group with the name is
+     * registered
+     */
+    public int getId(String name) {
+        Integer id = productGroupIds.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the product group with the given name.
+     *
+     * @param name the name of the product group
+     * @return the product group
+     * @throws IllegalArgumentException if no group with the name is registered
+     */
+    public ProductGroup getProductGroup(String name) {
+        Integer id = productGroupIds.get(name);
+        if (id == null) {
+            throw new IllegalArgumentException("Product group with name '" + name + "' not found.");
+        }
+        return productGroups.get(id);
+    }
+
+    /**
+     * Returns the product group with the given id.
+     *
+     * @param id the id of the product group
+     * @return the product group
+     * @throws IndexOutOfBoundsException if no group with the id is registered
+     */
+    public ProductGroup getProductGroup(int id) {
+        return productGroups.get(id);
+    }
+
+    public int size() {
+        return productGroups.size();
+    }
+
+    // Getter
+    /**
+     * Returns the registered product groups, ordered by their id.
+     *
+     * @return an unmodifiable view of the registered product groups
+     */
+    public List<ProductGroup> getProductGroups() {
+        return Collections.unmodifiableList(productGroups);
+    }
+
+}
@@ -0,0 +1,85 @@
+package de.gribovskij.supdupmarket;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Identifies a batch of products by the product's name, its product group
+ * name and the expiry date of the batch. Products delivered by a supplier in
+ * the same batch share the same key.
+ *
+ * @author Eugen Gribovskij
+ */
+public final class ProductKey {
+
+    private final String name;
+
+    private final String productGroupName;
+
+    private final LocalDate expiryDate;
+
+    public ProductKey(String name, String productGroupName, LocalDate expiryDate) {
+        this.name = name;
+        this.productGroupName = productGroupName;
+        this.expiryDate = expiryDate;
+    }
+
+    /**
+     * Creates the key of the batch the given product belongs to.
+     *
+     * @param product the product
+     * @return the key of the product's batch
+     */
+    public static ProductKey of(Product product) {
+        return new ProductKey(product.getName(), product.getProductGroupName(), product.getExpiryDate());
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 5;
+        hash = 41 * hash + Objects.hashCode(this.name);
+        hash = 41 * hash + Objects.hashCode(this.productGroupName);
+        hash = 41 * hash + Objects.hashCode(this.expiryDate);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final ProductKey other = (ProductKey) obj;
+        if (!Objects.equals(this.name, other.name)) {
+            return false;
+        }
+        if (!Objects.equals(this.productGroupName, other.productGroupName)) {
+            return false;
+        }
+        return Objects.equals(this.expiryDate, other.expiryDate);
+    }
+
+    @Override
+    public String toString() {
+        return "ProductKey{" + "name=" + name + ", productGroupName=" + productGroupName + ", expiryDate=" + expiryDate + '}';
+    }
+
+    // Getter
+    public String getName() {
+        return name;
+    }
+
+    public String getProductGroupName() {
+        return productGroupName;
+    }
+
+    public LocalDate getExpiryDate() {
+        return expiryDate;
+    }
+
+}
@@ -1,12 +1,12 @@
-package de.gribovskij.supdupmarket;
-
-/**
- * Indicator if a quality value can change over time.
- * 
- * @author Eugen
- */
-public enum ProductQualityChange {
-    
-    INCREASE, DECREASE, UNCHANGING;
-    
-}
+package de.gribovskij.supdupmarket;
+
+/**
+ * Indicator if a quality value can change over time.
+ * 
+ * @author Eugen
+ */
+public enum ProductQualityChange {
+    
+    INCREASE, DECREASE, UNCHANGING;
+    
+}
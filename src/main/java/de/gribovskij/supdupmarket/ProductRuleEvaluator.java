@@ -0,0 +1,118 @@
+package de.gribovskij.supdupmarket;
+
+/**
+ * The quality and price rules of a {@link ProductRuleSet}, compiled into
+ * coefficients of one branch free formula.
+ *
+ * <p>
+ * The kind of quality change and the price options are resolved once when the
+ * rule set is created: an unchanging quality becomes a change factor of 0, a
+ * decreasing quality a negative factor without upper boundary, a fixed price a
+ * quality weight of 0. All rule sets share this one final class, so the call
+ * sites stay monomorphic and are inlined by the JIT, no matter how many
+ * product groups with different rules are mixed on a shelf. Only the expiry
+ * day and the day before it are still distinguished per product.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+final class ProductRuleEvaluator {
+
+    // Price change per quality point in cents
+    private static final long QUALITY_PRICE_FACTOR = 10;
+
+    // Quality change per interval, negative for decreasing and 0 for unchanging quality
+    private final int qualityChangePerInterval;
+
+    private final int daysUntilQualityChange;
+
+    private final int highestQuality;
+
+    // 1 if the price changes with the quality, otherwise 0
+    private final long qualityPriceWeight;
+
+    private final int expiryDiscountInPercent;
+
+    private final boolean expiryDiscount;
+
+    /**
+     * Compiles the rules given by the values of a {@link ProductRuleSet}.
+     */
+    ProductRuleEvaluator(ProductQualityChange qualityChange, boolean dailyPrice, int qualityChangeFactor, int highestQualityBoundary,
+            int daysUntilQualityChange, boolean expiryDiscount, int expiryDiscountInPercent) {
+        switch (qualityChange) {
+            case UNCHANGING -> {
+                this.qualityChangePerInterval = 0;
+                this.daysUntilQualityChange = 1;
+                this.highestQuality = Integer.MAX_VALUE;
+            }
+            case INCREASE -> {
+                this.qualityChangePerInterval = qualityChangeFactor;
+                this.daysUntilQualityChange = daysUntilQualityChange;
+                this.highestQuality = highestQualityBoundary;
+            }
+            default -> {
+                this.qualityChangePerInterval = -qualityChangeFactor;
+                this.daysUntilQualityChange = daysUntilQualityChange;
+                this.highestQuality = Integer.MAX_VALUE;
+            }
+        }
+        this.qualityPriceWeight = dailyPrice ? 1 : 0;
+        this.expiryDiscountInPercent = expiryDiscountInPercent;
+        this.expiryDiscount = expiryDiscount;
+    }
+
+    /**
+     * Calculates the quality after the given number of days on the shelf.
+     *
+     * @param startQuality the quality of the product when it was shelved
+     * @param daysSinceStore the number of days since the product was shelved
+     * @return the quality after the given days
+     */
+    int quality(int startQuality, long daysSinceStore) {
+        return qualityAfterIntervals(startQuality, (int) (daysSinceStore / daysUntilQualityChange));
+    }
+
+    /**
+     * Calculates the quality after the given number of quality change
+     * intervals.
+     *
+     * @param startQuality the quality of the product when it was shelved
+     * @param qualityChangeIntervals the number of passed quality change
+     * intervals
+     * @return the quality after the given intervals
+     */
+    int qualityAfterIntervals(int startQuality, int qualityChangeIntervals) {
+        return Math.min(startQuality + qualityChangeIntervals * qualityChangePerInterval, highestQuality);
+    }
+
+    /**
+     * Calculates the price of a product, see
+     * {@link ProductRuleSet#getPrice(long, int, long)}.
+     *
+     * @param basePrice the base price of the product in cents
+     * @param quality the current quality of the product
+     * @param daysUntilExpiry the number of days from today until the expiry
+     * date
+     * @return the current price of the product in cents
+     */
+    long price(long basePrice, int quality, long daysUntilExpiry) {
+        long qualityPriceFactor = QUALITY_PRICE_FACTOR * quality;
+        if (daysUntilExpiry == 0) {
+            return basePrice - Money.percentOf(basePrice + qualityPriceFactor, expiryDiscountInPercent);
+        }
+        long price = basePrice + qualityPriceWeight * qualityPriceFactor;
+        if (daysUntilExpiry == 1 && expiryDiscount) {
+            return price - Money.percentOf(basePrice + qualityPriceFactor, expiryDiscountInPercent);
+        }
+        return price;
+    }
+
+    /**
+     * Returns the quality change per interval: negative for decreasing, 0 for
+     * unchanging quality.
+     */
+    int qualityChangePerInterval() {
+        return qualityChangePerInterval;
+    }
+
+}
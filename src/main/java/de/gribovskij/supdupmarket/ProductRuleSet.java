@@ -1,100 +1,199 @@
-package de.gribovskij.supdupmarket;
-
-import java.util.Objects;
-
-/**
- * This class defines rules and boundarys for one product.
- *
- * @author Eugen Gribovskij
- */
-public class ProductRuleSet {
-
-    private final boolean expiring;
-
-    private final ProductQualityChange qualityChange;
-
-    // Set to true if the product price changes daily
-    private final boolean dailyPrice;
-
-    // Quality gain/loss factor then quality can change
-    private final int qualityChangeFactor;
-
-    /**
-     * Defines the minimum quality threshold. If reached, the product must be
-     * thrown away
-     */
-    private final int lowestQualityBoundary;
-
-    /**
-     * Defines the maximum quality threshold. If reached, the quality cannot
-     * increase anymore.
-     */
-    private final int highestQualityBoundary;
-
-    /**
-     * Indicates how much days must pass before the quality can increase or
-     * decrease
-     */
-    private final int daysUntilQualityChange;
-
-    /**
-     * True if product get a discount for being clode to the expiry date
-     */
-    private final boolean expiryDiscount;
-
-    /**
-     * The expiry discount in percent on the current price
-     */
-    private final int expiryDiscountInPercent;
-
-    public ProductRuleSet(boolean expiring, ProductQualityChange qualityChange, boolean dailyPrice, int qualityChangeFactor, int lowestQualityBoundary, int highestQualityBoundary, int daysUntilQualityChange, boolean expiryDiscount, int expiryDiscountInPercent) {
-        Objects.requireNonNull(qualityChange, "Must be initialized");
-        this.expiring = expiring;
-        this.qualityChange = qualityChange;
-        this.dailyPrice = dailyPrice;
-        this.qualityChangeFactor = qualityChangeFactor;
-        this.lowestQualityBoundary = lowestQualityBoundary;
-        this.highestQualityBoundary = highestQualityBoundary;
-        this.daysUntilQualityChange = daysUntilQualityChange;
-        this.expiryDiscount = expiryDiscount;
-        this.expiryDiscountInPercent = expiryDiscountInPercent;
-    }
-
-    // Getter / Setter
-    public boolean isExpiring() {
-        return expiring;
-    }
-
-    public ProductQualityChange getQualityChange() {
-        return qualityChange;
-    }
-
-    public boolean isDailyPrice() {
-        return dailyPrice;
-    }
-
-    public int getQualityChangeFactor() {
-        return qualityChangeFactor;
-    }
-
-    public int getLowestQualityBoundary() {
-        return lowestQualityBoundary;
-    }
-
-    public int getHighestQualityBoundary() {
-        return highestQualityBoundary;
-    }
-
-    public int getDaysUntilQualityChange() {
-        return daysUntilQualityChange;
-    }
-
-    public boolean isExpiryDiscount() {
-        return expiryDiscount;
-    }
-
-    public int getExpiryDiscountInPercent() {
-        return expiryDiscountInPercent;
-    }
-
-}
+package de.gribovskij.supdupmarket;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * This class defines rules and boundarys for one product.
+ *
+ * @author Eugen Gribovskij
+ */
+public class ProductRuleSet {
+
+    private final boolean expiring;
+
+    private final ProductQualityChange qualityChange;
+
+    // Set to true if the product price changes daily
+    private final boolean dailyPrice;
+
+    // Quality gain/loss factor then quality can change
+    private final int qualityChangeFactor;
+
+    /**
+     * Defines the minimum quality threshold. If reached, the product must be
+     * thrown away
+     */
+    private final int lowestQualityBoundary;
+
+    /**
+     * Defines the maximum quality threshold. If reached, the quality cannot
+     * increase anymore.
+     */
+    private final int highestQualityBoundary;
+
+    /**
+     * Indicates how much days must pass before the quality can increase or
+     * decrease
+     */
+    private final int daysUntilQualityChange;
+
+    /**
+     * True if product get a discount for being clode to the expiry date
+     */
+    private final boolean expiryDiscount;
+
+    /**
+     * The expiry discount in percent on the current price
+     */
+    private final int expiryDiscountInPercent;
+
+    // The quality and price rules compiled once for the evaluation
+    private final ProductRuleEvaluator evaluator;
+
+    public ProductRuleSet(boolean expiring, ProductQualityChange qualityChange, boolean dailyPrice, int qualityChangeFactor, int lowestQualityBoundary, int highestQualityBoundary, int daysUntilQualityChange, boolean expiryDiscount, int expiryDiscountInPercent) {
+        Objects.requireNonNull(qualityChange, "Must be initialized");
+        this.expiring = expiring;
+        this.qualityChange = qualityChange;
+        this.dailyPrice = dailyPrice;
+        this.qualityChangeFactor = qualityChangeFactor;
+        this.lowestQualityBoundary = lowestQualityBoundary;
+        this.highestQualityBoundary = highestQualityBoundary;
+        this.daysUntilQualityChange = daysUntilQualityChange;
+        this.expiryDiscount = expiryDiscount;
+        this.expiryDiscountInPercent = expiryDiscountInPercent;
+        this.evaluator = new ProductRuleEvaluator(qualityChange, dailyPrice, qualityChangeFactor, highestQualityBoundary,
+                daysUntilQualityChange, expiryDiscount, expiryDiscountInPercent);
+    }
+
+    /**
+     * Calculates the quality of a product after the given number of days on
+     * the shelf. The quality changes once per completed quality change
+     * interval, see {@link #getQuality(int, int)}.
+     *
+     * @param startQuality the quality of the product when it was shelved
+     * @param daysSinceStore the number of days since the product was shelved
+     * @return the quality after the given days
+     */
+    public int getQualityAfterDays(int startQuality, long daysSinceStore) {
+        return evaluator.quality(startQuality, daysSinceStore);
+    }
+
+    /**
+     * Calculates the quality of a product after the given number of quality
+     * change intervals.
+     *
+     * - If the quality is unchanging, the initial quality is returned. - If the
+     * quality increases, the quality is incremented by the change factor per
+     * interval, up to the highest quality boundary. - If the quality
+     * decreases, the quality is decremented by the change factor per interval.
+     *
+     * @param startQuality the quality of the product when it was shelved
+     * @param qualityChangeIntervals the number of passed quality change
+     * intervals
+     * @return the quality after the given intervals
+     */
+    public int getQuality(int startQuality, int qualityChangeIntervals) {
+        return evaluator.qualityAfterIntervals(startQuality, qualityChangeIntervals);
+    }
+
+    /**
+     * Calculates the price of a product based on its base price and current
+     * quality. If the price changes daily, the price is adjusted by adding a
+     * factor based on the quality. Additionally, if an expiry discount is
+     * applicable and today is exactly one day before the product's expiry
+     * date, the price is adjusted by subtracting a discount factor from the
+     * base price with quality adjustments.
+     *
+     * <p>
+     * Prices are calculated in cents, every quality point is worth 10 cents
+     * and discounts are rounded half up to whole cents.</p>
+     *
+     * @param basePrice the base price of the product in cents
+     * @param quality the current quality of the product
+     * @param daysUntilExpiry the number of days from today until the expiry
+     * date
+     * @return the current price of the product in cents
+     */
+    public long getPrice(long basePrice, int quality, long daysUntilExpiry) {
+        return evaluator.price(basePrice, quality, daysUntilExpiry);
+    }
+
+    /**
+     * Calculates in constant time the first date on or after the store date on
+     * which a product governed by this rule set is not marketable anymore.
+     *
+     * <p>
+     * Expiring products drop out on their expiry date or as soon as their
+     * quality falls below the lowest quality boundary. Non expiring products
+     * drop out as soon as their quality reaches the lowest quality boundary.
+     * Since the quality changes linearly per interval, the crossing interval
+     * can be calculated directly instead of probing day by day.</p>
+     *
+     * @param startQuality the quality of the product when it was shelved
+     * @param storeDate the date the product was added to the shelf
+     * @param expiryDate the expiry date of the product
+     * @return the first non marketable date or {@link LocalDate#MAX} if the
+     * product stays marketable forever
+     */
+    public LocalDate getUnmarketableDate(int startQuality, LocalDate storeDate, LocalDate expiryDate) {
+        LocalDate unmarketableDate = expiring ? expiryDate : LocalDate.MAX;
+
+        // Expiring products may keep the lowest boundary, non expiring ones must stay above it
+        int lowestAcceptedQuality = expiring ? lowestQualityBoundary : lowestQualityBoundary + 1;
+
+        if (getQuality(startQuality, 0) < lowestAcceptedQuality || !unmarketableDate.isAfter(storeDate)) {
+            return storeDate;
+        }
+
+        int qualityChangePerInterval = evaluator.qualityChangePerInterval();
+        if (qualityChangePerInterval >= 0) {
+            return unmarketableDate;
+        }
+
+        long failingInterval = (startQuality - lowestAcceptedQuality) / -(long) qualityChangePerInterval + 1;
+        long daysUntilFailing = failingInterval * daysUntilQualityChange;
+        if (daysUntilFailing >= unmarketableDate.toEpochDay() - storeDate.toEpochDay()) {
+            return unmarketableDate;
+        }
+        return storeDate.plusDays(daysUntilFailing);
+    }
+
+    // Getter / Setter
+    public boolean isExpiring() {
+        return expiring;
+    }
+
+    public ProductQualityChange getQualityChange() {
+        return qualityChange;
+    }
+
+    public boolean isDailyPrice() {
+        return dailyPrice;
+    }
+
+    public int getQualityChangeFactor() {
+        return qualityChangeFactor;
+    }
+
+    public int getLowestQualityBoundary() {
+        return lowestQualityBoundary;
+    }
+
+    public int getHighestQualityBoundary() {
+        return highestQualityBoundary;
+    }
+
+    public int getDaysUntilQualityChange() {
+        return daysUntilQualityChange;
+    }
+
+    public boolean isExpiryDiscount() {
+        return expiryDiscount;
+    }
+
+    public int getExpiryDiscountInPercent() {
+        return expiryDiscountInPercent;
+    }
+
+}
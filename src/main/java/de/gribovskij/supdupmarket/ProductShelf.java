@@ -1,55 +1,500 @@
-package de.gribovskij.supdupmarket;
-
-import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- *
- * @author Eugen Gribovskij
- */
-public class ProductShelf {
-
-    private final List<Product> storedProducts;
-
-    public ProductShelf(List<Product> storedProducts) {
-        this.storedProducts = new ArrayList<>(storedProducts);
-    }
-
-    /**
-     * Adds a product to a shelf if the product is marketable.
-     *
-     * @param product to add to the shelf
-     * @param currentDate
-     */
-    public void addProduct(Product product, LocalDate currentDate) {
-        product.setStoreDate(currentDate);
-        if (product.isMarketable(currentDate)) {
-            storedProducts.add(product);
-        }
-    }
-
-    public void removeProduct(Product product) {
-        storedProducts.remove(product);
-    }
-
-    /**
-     * Removes all expired products from the shelf based on the given date.
-     *
-     * @param currentDate the date used to check product marketability
-     * @return a list of non marketable products
-     */
-    public List<Product> removeExpiredProducts(LocalDate currentDate) {
-        List<Product> nonMarketableProducts = storedProducts.stream().
-                filter(product -> !product.isMarketable(currentDate)).toList();
-        storedProducts.removeAll(nonMarketableProducts);
-
-        return nonMarketableProducts;
-    }
-
-    // Getter / Setter
-    public List<Product> getStoredProducts() {
-        return storedProducts;
-    }
-
-}
+package de.gribovskij.supdupmarket;
+
+import de.gribovskij.supdupmarket.metrics.MarketMetrics;
+import java.nio.LongBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A shelf holding all marketable products of the market.
+ *
+ * <p>
+ * The products are kept in the order they were added and are indexed by their
+ * id, so a single product is found and removed in constant time. Besides that
+ * the shelf keeps two secondary indexes: one groups the products by the first date they
+ * are not marketable anymore, so the daily sweep in
+ * {@link #removeExpiredProducts(LocalDate)} only has to look at the products
+ * which actually leave the shelf. The other one groups the products by their
+ * {@link ProductKey}, so the products of a batch can be found, replaced or
+ * removed without scanning the shelf.</p>
+ *
+ * <p>
+ * If the {@link ProductRuleSet} of a product group changes, the products of
+ * the group are moved to their new removal date with the next sweep. The
+ * store date and product group of a stored product must not be changed;
+ * replace the product instead, see
+ * {@link #replaceProduct(Product, Product, LocalDate)}.</p>
+ *
+ * <p>
+ * The stored products are kept in a {@link ProductShelfVersion}. Every change
+ * of the shelf publishes a new version, which {@link #snapshot()} hands out in
+ * constant time to readers on any thread. The shelf itself is changed by one
+ * thread at a time.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class ProductShelf {
+
+    // Positions not in use anymore are reclaimed when they outnumber the products
+    private static final long MIN_POSITIONS_TO_COMPACT = 1024;
+
+    // Stored products by the position they got when added to the shelf
+    private volatile ProductShelfVersion storedProducts;
+
+    // Editor of the next version, while the shelf is changed
+    private ProductShelfVersion.Editor editor;
+
+    // Positions of the stored products by product id
+    private final Map<Long, Long> positions;
+
+    // Products grouped by the first date they are not marketable anymore
+    private final NavigableMap<LocalDate, Set<Product>> removalIndex;
+
+    // Dates the stored products are grouped by in the removal index, by product id
+    private final Map<Long, LocalDate> removalDates;
+
+    // Rule sets of the product groups, when the removal dates were calculated
+    private final Map<ProductGroup, ProductRuleSet> indexedRuleSets;
+
+    // Products grouped by their batch
+    private final Map<ProductKey, Set<Product>> keyIndex;
+
+    private long nextPosition;
+
+    private ShelfPriceTable priceTable;
+
+    // The version the price table was built from
+    private long priceTableVersion;
+
+    /**
+     * Creates a shelf with the given products. The products keep their store
+     * dates, they are indexed by the date they are not marketable anymore.
+     *
+     * @param storedProducts the products on the shelf, in shelf order
+     * @throws IllegalArgumentException if a product was never stored, i.e. has
+     * no store date, or is contained twice
+     */
+    public ProductShelf(List<Product> storedProducts) {
+        this.storedProducts = ProductShelfVersion.EMPTY;
+        this.positions = new HashMap<>();
+        this.removalIndex = new TreeMap<>();
+        this.removalDates = new HashMap<>();
+        this.indexedRuleSets = new HashMap<>();
+        this.keyIndex = new HashMap<>();
+        for (Product product : storedProducts) {
+            if (product.getStoreDate() == null) {
+                throw new IllegalArgumentException("Product has no store date: " + product);
+            }
+            storeProduct(product);
+        }
+        publish();
+    }
+
+    /**
+     * Adds a product to a shelf if the product is marketable.
+     *
+     * @param product to add to the shelf
+     * @param currentDate
+     */
+    public void addProduct(Product product, LocalDate currentDate) {
+        try {
+            addMarketableProduct(product, currentDate);
+        } finally {
+            publish();
+        }
+    }
+
+    /**
+     * Adds all marketable products of the given collection to the shelf.
+     *
+     * @param products the products to add to the shelf
+     * @param currentDate the date the products are added to the shelf
+     */
+    public void addProducts(Collection<Product> products, LocalDate currentDate) {
+        try {
+            for (Product product : products) {
+                addMarketableProduct(product, currentDate);
+            }
+        } finally {
+            publish();
+        }
+    }
+
+    /**
+     * Removes the given product from the shelf.
+     *
+     * @param product the product to remove
+     */
+    public void removeProduct(Product product) {
+        removeProduct(product.getId());
+    }
+
+    /**
+     * Removes the product with the given id from the shelf.
+     *
+     * @param id the id of the product to remove
+     * @return the removed product or null if no product with the id is stored
+     */
+    public Product removeProduct(long id) {
+        try {
+            return removeStoredProduct(id);
+        } finally {
+            publish();
+        }
+    }
+
+    /**
+     * Returns the stored product with the given id.
+     *
+     * @param id the id of the product
+     * @return the stored product or null if no product with the id is stored
+     */
+    public Product getProduct(long id) {
+        Long position = positions.get(id);
+        return position == null ? null : storedProducts.get(position);
+    }
+
+    /**
+     * Returns the stored products of the batch with the given key.
+     *
+     * @param key the key of the batch
+     * @return the products of the batch, in shelf order
+     */
+    public List<Product> findProducts(ProductKey key) {
+        Set<Product> products = keyIndex.get(key);
+        if (products == null) {
+            return List.of();
+        }
+        List<Product> foundProducts = new ArrayList<>(products);
+        foundProducts.sort(Comparator.comparing(product -> positions.get(product.getId())));
+        return foundProducts;
+    }
+
+    /**
+     * Removes all stored products of the batch with the given key.
+     *
+     * @param key the key of the batch
+     * @return the removed products, in shelf order
+     */
+    public List<Product> removeProducts(ProductKey key) {
+        List<Product> removedProducts = findProducts(key);
+        try {
+            for (Product product : removedProducts) {
+                removeStoredProduct(product.getId());
+            }
+        } finally {
+            publish();
+        }
+        return removedProducts;
+    }
+
+    /**
+     * Replaces a stored product by another product, e.g. with updated supplier
+     * data. The new product takes the place of the replaced product in the
+     * shelf order and keeps its store date. If the new product is not
+     * marketable anymore, the stored product is only removed.
+     *
+     * @param storedProduct the stored product to replace
+     * @param product the new product
+     * @param currentDate the date used to check product marketability
+     * @return true if the new product is stored, false otherwise
+     */
+    public boolean replaceProduct(Product storedProduct, Product product, LocalDate currentDate) {
+        if (product.getId() != storedProduct.getId() && positions.containsKey(product.getId())) {
+            throw new IllegalArgumentException("Product is already stored on the shelf: " + product);
+        }
+        Long position = positions.remove(storedProduct.getId());
+        if (position == null) {
+            throw new IllegalArgumentException("Product is not stored on the shelf: " + storedProduct);
+        }
+        try {
+            unindexProduct(storedProduct);
+
+            product.setStoreDate(storedProduct.getStoreDate());
+            if (!product.isMarketable(currentDate)) {
+                editor().remove(position);
+                return false;
+            }
+            editor().put(position, product);
+            positions.put(product.getId(), position);
+            indexProduct(product);
+            return true;
+        } finally {
+            publish();
+        }
+    }
+
+    /**
+     * Removes all expired products from the shelf based on the given date.
+     *
+     * <p>
+     * Only the index entries up to the given date are visited and every due
+     * product is removed in constant time, so the effort depends on the number
+     * of removed products and not on the number of stored products. Only if
+     * the rule set of a product group changed since the last sweep, the
+     * products of the group are indexed again first.</p>
+     *
+     * @param currentDate the date used to check product marketability
+     * @return a list of non marketable products, in shelf order
+     */
+    public List<Product> removeExpiredProducts(LocalDate currentDate) {
+        long startNanos = System.nanoTime();
+        reindexChangedRuleSets();
+        NavigableMap<LocalDate, Set<Product>> dueEntries = removalIndex.headMap(currentDate, true);
+        if (dueEntries.isEmpty()) {
+            recordSweep(0, startNanos);
+            return List.of();
+        }
+
+        List<Product> dueProducts = new ArrayList<>();
+        for (Set<Product> products : dueEntries.values()) {
+            dueProducts.addAll(products);
+        }
+        dueEntries.clear();
+
+        List<Product> nonMarketableProducts = new ArrayList<>(dueProducts.size());
+        for (Product product : dueProducts) {
+            removalDates.remove(product.getId());
+            if (!positions.containsKey(product.getId())) {
+                continue;
+            }
+            LocalDate unmarketableDate = product.getUnmarketableDate();
+            if (unmarketableDate.isAfter(currentDate)) {
+                indexRemovalDate(product, unmarketableDate);
+            } else {
+                nonMarketableProducts.add(product);
+            }
+        }
+
+        nonMarketableProducts.sort(Comparator.comparing(product -> positions.get(product.getId())));
+        ProductShelfVersion.Editor versionEditor = editor();
+        for (Product product : nonMarketableProducts) {
+            versionEditor.remove(positions.remove(product.getId()));
+            unindex(keyIndex, ProductKey.of(product), product);
+        }
+        publish();
+
+        recordSweep(nonMarketableProducts.size(), startNanos);
+        return nonMarketableProducts;
+    }
+
+    /**
+     * Moves the products of all groups, whose rule set changed since their
+     * products were indexed, to their current removal date.
+     */
+    private void reindexChangedRuleSets() {
+        Set<ProductGroup> changedGroups = null;
+        for (Map.Entry<ProductGroup, ProductRuleSet> entry : indexedRuleSets.entrySet()) {
+            ProductRuleSet productRuleSet = entry.getKey().getProductRule();
+            if (productRuleSet != entry.getValue()) {
+                if (changedGroups == null) {
+                    changedGroups = new HashSet<>();
+                }
+                changedGroups.add(entry.getKey());
+                entry.setValue(productRuleSet);
+            }
+        }
+        if (changedGroups == null) {
+            return;
+        }
+        for (Product product : storedProducts) {
+            if (changedGroups.contains(product.getProductGroup())) {
+                unindex(removalIndex, removalDates.get(product.getId()), product);
+                indexRemovalDate(product, product.getUnmarketableDate());
+            }
+        }
+    }
+
+    private static void recordSweep(int removedProducts, long startNanos) {
+        MarketMetrics.SHELF_SWEEP_NANOS.recordNanosSince(startNanos);
+        MarketMetrics.SHELF_SWEEP_PRODUCTS.record(removedProducts);
+    }
+
+    /**
+     * Returns the current version of the stored products. The version is
+     * immutable and taken in constant time, so it can be iterated on any
+     * thread while the shelf is changed, e.g. to print or export the shelf.
+     *
+     * @return the current version of the stored products
+     */
+    public ProductShelfVersion snapshot() {
+        return storedProducts;
+    }
+
+    private void addMarketableProduct(Product product, LocalDate currentDate) {
+        if (positions.containsKey(product.getId())) {
+            throw new IllegalArgumentException("Product is already stored on the shelf: " + product);
+        }
+        product.setStoreDate(currentDate);
+        if (product.isMarketable(currentDate)) {
+            storeProduct(product);
+            MarketMetrics.SHELF_ADDED_PRODUCTS.increment();
+        } else {
+            MarketMetrics.SHELF_REJECTED_PRODUCTS.increment();
+        }
+    }
+
+    private Product removeStoredProduct(long id) {
+        Long position = positions.remove(id);
+        if (position == null) {
+            return null;
+        }
+        ProductShelfVersion.Editor versionEditor = editor();
+        Product product = versionEditor.get(position);
+        versionEditor.remove(position);
+        unindexProduct(product);
+        return product;
+    }
+
+    private void storeProduct(Product product) {
+        long position = nextPosition;
+        if (positions.putIfAbsent(product.getId(), position) != null) {
+            throw new IllegalArgumentException("Product is already stored on the shelf: " + product);
+        }
+        nextPosition++;
+        editor().put(position, product);
+        indexProduct(product);
+    }
+
+    private ProductShelfVersion.Editor editor() {
+        if (editor == null) {
+            editor = new ProductShelfVersion.Editor(storedProducts);
+        }
+        return editor;
+    }
+
+    /**
+     * Publishes the changes of the current editor as new version. Positions
+     * of removed products are reclaimed by renumbering the products in shelf
+     * order once they outnumber the stored products.
+     */
+    private void publish() {
+        if (editor == null) {
+            return;
+        }
+        ProductShelfVersion version = editor.publish(storedProducts.getVersion() + 1);
+        editor = null;
+        if (nextPosition > MIN_POSITIONS_TO_COMPACT && nextPosition > 2L * version.size()) {
+            ProductShelfVersion.Editor compactingEditor = new ProductShelfVersion.Editor(ProductShelfVersion.EMPTY);
+            long position = 0;
+            for (Product product : version) {
+                compactingEditor.put(position, product);
+                positions.put(product.getId(), position);
+                position++;
+            }
+            nextPosition = position;
+            version = compactingEditor.publish(version.getVersion());
+        }
+        storedProducts = version;
+    }
+
+    /**
+     * Writes the current prices of all stored products into the given array,
+     * in shelf order.
+     *
+     * <p>
+     * The products are priced grouped by their {@link ProductRuleSet}, from a
+     * column wise copy of their base prices, qualities and dates. The copy is
+     * kept until the stored products or the rule sets change, so pricing the
+     * same shelf for several dates or consumers only builds it once. No
+     * product is evaluated one by one and nothing is allocated per
+     * product.</p>
+     *
+     * @param currentDate the date to price the products for
+     * @param prices the array to write the prices in cents to; must be at
+     * least {@link #size()} long
+     * @return the number of written prices
+     */
+    public int getCurrentPrices(LocalDate currentDate, long[] prices) {
+        ShelfPriceTable table = currentPriceTable();
+        if (prices.length < table.size()) {
+            throw new IllegalArgumentException("Price array too small for " + table.size() + " products");
+        }
+        table.getPrices(currentDate, prices);
+        return table.size();
+    }
+
+    /**
+     * Writes the current prices of all stored products into the given buffer,
+     * e.g. a direct buffer shared with a price feed, in shelf order. The
+     * prices are written from the current position of the buffer on, which is
+     * advanced by the number of products.
+     *
+     * @param currentDate the date to price the products for
+     * @param prices the buffer to write the prices in cents to; must have at
+     * least {@link #size()} remaining places
+     * @return the number of written prices
+     * @see #getCurrentPrices(LocalDate, long[])
+     */
+    public int getCurrentPrices(LocalDate currentDate, LongBuffer prices) {
+        ShelfPriceTable table = currentPriceTable();
+        if (prices.remaining() < table.size()) {
+            throw new IllegalArgumentException("Price buffer too small for " + table.size() + " products");
+        }
+        table.getPrices(currentDate, prices, prices.position());
+        prices.position(prices.position() + table.size());
+        return table.size();
+    }
+
+    private ShelfPriceTable currentPriceTable() {
+        ProductShelfVersion version = storedProducts;
+        if (priceTable == null || priceTableVersion != version.getVersion() || !priceTable.hasCurrentRuleSets()) {
+            priceTable = ShelfPriceTable.build(version, version.size());
+            priceTableVersion = version.getVersion();
+        }
+        return priceTable;
+    }
+
+    private void indexProduct(Product product) {
+        ProductGroup productGroup = product.getProductGroup();
+        indexedRuleSets.putIfAbsent(productGroup, productGroup.getProductRule());
+        indexRemovalDate(product, product.getUnmarketableDate());
+        keyIndex.computeIfAbsent(ProductKey.of(product), key -> new HashSet<>()).add(product);
+    }
+
+    private void indexRemovalDate(Product product, LocalDate unmarketableDate) {
+        removalIndex.computeIfAbsent(unmarketableDate, date -> new HashSet<>()).add(product);
+        removalDates.put(product.getId(), unmarketableDate);
+    }
+
+    private void unindexProduct(Product product) {
+        // The date the product was indexed under, its rule set may have changed since
+        LocalDate removalDate = removalDates.remove(product.getId());
+        if (removalDate != null) {
+            unindex(removalIndex, removalDate, product);
+        }
+        unindex(keyIndex, ProductKey.of(product), product);
+    }
+
+    private static <K> void unindex(Map<K, Set<Product>> index, K key, Product product) {
+        Set<Product> products = index.get(key);
+        if (products != null && products.remove(product) && products.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    public int size() {
+        return storedProducts.size();
+    }
+
+    // Getter / Setter
+    /**
+     * Returns the stored products in shelf order.
+     *
+     * @return an unmodifiable copy of the stored products
+     * @see #snapshot()
+     */
+    public List<Product> getStoredProducts() {
+        return storedProducts.toList();
+    }
+
+}
@@ -0,0 +1,350 @@
+package de.gribovskij.supdupmarket;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable version of the stored products of a {@link ProductShelf}.
+ *
+ * <p>
+ * The products are kept in a persistent trie with 32 slots per node, indexed
+ * by their position on the shelf. A change of the shelf copies only the nodes
+ * on the path to the changed positions and shares all other nodes with the
+ * previous versions, so a version stays valid forever and is taken in
+ * constant time by {@link ProductShelf#snapshot()}. Readers can iterate a
+ * version on any thread while the shelf keeps changing, without copying the
+ * products and without blocking the writer.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public final class ProductShelfVersion implements Iterable<Product> {
+
+    private static final int BITS = 5;
+
+    private static final int WIDTH = 1 << BITS;
+
+    private static final int MASK = WIDTH - 1;
+
+    static final ProductShelfVersion EMPTY = new ProductShelfVersion(0, null, 0, 0);
+
+    private final long version;
+
+    private final Node root;
+
+    // Bits of the position below the root level
+    private final int shift;
+
+    private final int size;
+
+    private ProductShelfVersion(long version, Node root, int shift, int size) {
+        this.version = version;
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    /**
+     * Returns the product stored at the given position.
+     *
+     * @param position the position of the product
+     * @return the product or null if no product is stored at the position
+     */
+    Product get(long position) {
+        return get(root, shift, position);
+    }
+
+    private static Product get(Node root, int shift, long position) {
+        Node node = root;
+        if (node == null || position >>> shift >>> BITS != 0) {
+            return null;
+        }
+        for (int level = shift; level > 0 && node != null; level -= BITS) {
+            node = (Node) node.slots[(int) (position >>> level) & MASK];
+        }
+        return node == null ? null : (Product) node.slots[(int) position & MASK];
+    }
+
+    /**
+     * Returns the number of this version. Every change of the shelf creates a
+     * version with a higher number.
+     *
+     * @return the version number
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Iterates the products of this version in shelf order.
+     *
+     * @return an iterator over the products
+     */
+    @Override
+    public Iterator<Product> iterator() {
+        return new ProductIterator(root, shift);
+    }
+
+    @Override
+    public Spliterator<Product> spliterator() {
+        return Spliterators.spliterator(iterator(), size,
+                Spliterator.ORDERED | Spliterator.SIZED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+
+    public Stream<Product> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Splits the products of this version into consecutive parts, e.g. to
+     * process them on several threads. The parts are subtrees of the trie, so
+     * nothing is copied; their sizes differ if the shelf has gaps. Fewer parts
+     * are returned if the version is too small.
+     *
+     * @param parts the number of parts wanted at least
+     * @return the parts, in shelf order
+     */
+    public List<Iterable<Product>> split(int parts) {
+        List<Node> nodes = new ArrayList<>();
+        if (root != null) {
+            nodes.add(root);
+        }
+        int level = shift;
+        while (nodes.size() < parts && level > 0) {
+            List<Node> children = new ArrayList<>(nodes.size() * WIDTH);
+            for (Node node : nodes) {
+                for (Object slot : node.slots) {
+                    if (slot != null) {
+                        children.add((Node) slot);
+                    }
+                }
+            }
+            nodes = children;
+            level -= BITS;
+        }
+        int partShift = level;
+        List<Iterable<Product>> split = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            split.add(() -> new ProductIterator(node, partShift));
+        }
+        return split;
+    }
+
+    /**
+     * Copies the products of this version into a list, e.g. for indexed
+     * access.
+     *
+     * @return an unmodifiable list of the products, in shelf order
+     */
+    public List<Product> toList() {
+        List<Product> products = new ArrayList<>(size);
+        for (Product product : this) {
+            products.add(product);
+        }
+        return Collections.unmodifiableList(products);
+    }
+
+    /**
+     * A node of the trie. The slots of a node are only changed by the editor
+     * which created it, before the version containing it is published.
+     */
+    private static final class Node {
+
+        private final Object edit;
+
+        // Child nodes, or products on the lowest level
+        private final Object[] slots;
+
+        Node(Object edit, Object[] slots) {
+            this.edit = edit;
+            this.slots = slots;
+        }
+
+        boolean isEmpty() {
+            for (Object slot : slots) {
+                if (slot != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Derives a new version from a published one. Nodes copied by the editor
+     * are changed in place for all further changes, so a batch of changes
+     * copies every node at most once. The editor must not be used after
+     * {@link #publish(long)}.
+     */
+    static final class Editor {
+
+        private final Object edit = new Object();
+
+        private Node root;
+
+        private int shift;
+
+        private int size;
+
+        Editor(ProductShelfVersion base) {
+            this.root = base.root;
+            this.shift = base.shift;
+            this.size = base.size;
+        }
+
+        Product get(long position) {
+            return ProductShelfVersion.get(root, shift, position);
+        }
+
+        /**
+         * Stores a product at the given position, replacing the product
+         * stored there.
+         */
+        void put(long position, Product product) {
+            while (shift < Long.SIZE - BITS && position >>> shift >>> BITS != 0) {
+                if (root != null) {
+                    Node grownRoot = new Node(edit, new Object[WIDTH]);
+                    grownRoot.slots[0] = root;
+                    root = grownRoot;
+                }
+                shift += BITS;
+            }
+            root = editable(root);
+            Node node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                int index = (int) (position >>> level) & MASK;
+                Node child = editable((Node) node.slots[index]);
+                node.slots[index] = child;
+                node = child;
+            }
+            int index = (int) position & MASK;
+            if (node.slots[index] == null) {
+                size++;
+            }
+            node.slots[index] = product;
+        }
+
+        /**
+         * Removes the product stored at the given position, if any.
+         */
+        void remove(long position) {
+            if (root != null && position >>> shift >>> BITS == 0) {
+                root = remove(root, shift, position);
+            }
+        }
+
+        private Node remove(Node node, int level, long position) {
+            if (node == null) {
+                return null;
+            }
+            int index = (int) (position >>> level) & MASK;
+            Object slot = node.slots[index];
+            Object newSlot;
+            if (level == 0) {
+                if (slot == null) {
+                    return node;
+                }
+                newSlot = null;
+                size--;
+            } else {
+                newSlot = remove((Node) slot, level - BITS, position);
+                if (newSlot == slot) {
+                    return node;
+                }
+            }
+            Node editableNode = editable(node);
+            editableNode.slots[index] = newSlot;
+            return newSlot == null && editableNode.isEmpty() ? null : editableNode;
+        }
+
+        private Node editable(Node node) {
+            if (node == null) {
+                return new Node(edit, new Object[WIDTH]);
+            }
+            return node.edit == edit ? node : new Node(edit, node.slots.clone());
+        }
+
+        int size() {
+            return size;
+        }
+
+        ProductShelfVersion publish(long version) {
+            return new ProductShelfVersion(version, root, shift, size);
+        }
+    }
+
+    /**
+     * Depth first iteration over the filled slots of the trie.
+     */
+    private static final class ProductIterator implements Iterator<Product> {
+
+        private final Node[] nodes;
+
+        private final int[] indexes;
+
+        private int depth;
+
+        private Product next;
+
+        ProductIterator(Node root, int shift) {
+            this.nodes = new Node[shift / BITS + 1];
+            this.indexes = new int[nodes.length];
+            this.nodes[0] = root;
+            this.depth = root == null ? -1 : 0;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                int index = indexes[depth];
+                if (index == WIDTH) {
+                    depth--;
+                    continue;
+                }
+                indexes[depth] = index + 1;
+                Object slot = nodes[depth].slots[index];
+                if (slot == null) {
+                    continue;
+                }
+                if (depth == nodes.length - 1) {
+                    next = (Product) slot;
+                    return;
+                }
+                depth++;
+                nodes[depth] = (Node) slot;
+                indexes[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Product next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Product product = next;
+            advance();
+            return product;
+        }
+    }
+
+}
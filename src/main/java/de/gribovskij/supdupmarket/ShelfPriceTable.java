@@ -0,0 +1,179 @@
+package de.gribovskij.supdupmarket;
+
+import java.nio.LongBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The pricing relevant data of the products of a {@link ProductShelf},
+ * grouped by {@link ProductRuleSet} and stored column wise in primitive
+ * arrays.
+ *
+ * <p>
+ * Pricing the shelf runs one loop per rule set over these arrays, so the
+ * rules of the inner loop never change and no product object is touched. The
+ * table is a snapshot: it has to be rebuilt when products are added or
+ * removed or the rule set of a product group is replaced.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+final class ShelfPriceTable {
+
+    private final int size;
+
+    private final List<RuleSetColumns> ruleSetColumns;
+
+    private ShelfPriceTable(int size, List<RuleSetColumns> ruleSetColumns) {
+        this.size = size;
+        this.ruleSetColumns = ruleSetColumns;
+    }
+
+    /**
+     * Builds the price table of the given products.
+     *
+     * @param products the stored products in shelf order
+     * @param size the number of stored products
+     * @return the price table
+     */
+    static ShelfPriceTable build(Iterable<Product> products, int size) {
+        Map<ProductRuleSet, RuleSetColumns> columnsByRuleSet = new IdentityHashMap<>();
+        List<RuleSetColumns> ruleSetColumns = new ArrayList<>();
+        int position = 0;
+        for (Product product : products) {
+            ProductGroup productGroup = product.getProductGroup();
+            ProductRuleSet ruleSet = productGroup.getProductRule();
+            RuleSetColumns columns = columnsByRuleSet.get(ruleSet);
+            if (columns == null) {
+                columns = new RuleSetColumns(ruleSet, productGroup);
+                columnsByRuleSet.put(ruleSet, columns);
+                ruleSetColumns.add(columns);
+            }
+            columns.add(position++, product, productGroup);
+        }
+        return new ShelfPriceTable(size, ruleSetColumns);
+    }
+
+    /**
+     * Checks if the product groups of the table still use the rule sets the
+     * table was built with.
+     *
+     * @return true if the table can be used for pricing
+     */
+    boolean hasCurrentRuleSets() {
+        for (RuleSetColumns columns : ruleSetColumns) {
+            for (ProductGroup productGroup : columns.productGroups) {
+                if (productGroup.getProductRule() != columns.ruleSet) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the prices of all products for the given date into the array,
+     * in shelf order.
+     *
+     * @param currentDate the date to price the products for
+     * @param prices the array to write the prices in cents to
+     */
+    void getPrices(LocalDate currentDate, long[] prices) {
+        long currentDay = currentDate.toEpochDay();
+        for (RuleSetColumns columns : ruleSetColumns) {
+            ProductRuleSet ruleSet = columns.ruleSet;
+            int[] positions = columns.positions;
+            long[] basePrices = columns.basePrices;
+            int[] startQualities = columns.startQualities;
+            long[] storeDays = columns.storeDays;
+            long[] expiryDays = columns.expiryDays;
+            for (int index = 0; index < columns.size; index++) {
+                int quality = ruleSet.getQualityAfterDays(startQualities[index], currentDay - storeDays[index]);
+                prices[positions[index]] = ruleSet.getPrice(basePrices[index], quality, expiryDays[index] - currentDay);
+            }
+        }
+    }
+
+    /**
+     * Writes the prices of all products for the given date into the buffer,
+     * in shelf order, starting at the given index. The prices are written
+     * with absolute puts, so the position of the buffer is not changed and
+     * nothing is copied, also for direct buffers.
+     *
+     * @param currentDate the date to price the products for
+     * @param prices the buffer to write the prices in cents to
+     * @param offset the index of the price of the first product
+     */
+    void getPrices(LocalDate currentDate, LongBuffer prices, int offset) {
+        long currentDay = currentDate.toEpochDay();
+        for (RuleSetColumns columns : ruleSetColumns) {
+            ProductRuleSet ruleSet = columns.ruleSet;
+            int[] positions = columns.positions;
+            long[] basePrices = columns.basePrices;
+            int[] startQualities = columns.startQualities;
+            long[] storeDays = columns.storeDays;
+            long[] expiryDays = columns.expiryDays;
+            for (int index = 0; index < columns.size; index++) {
+                int quality = ruleSet.getQualityAfterDays(startQualities[index], currentDay - storeDays[index]);
+                prices.put(offset + positions[index], ruleSet.getPrice(basePrices[index], quality, expiryDays[index] - currentDay));
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The products of one rule set.
+     */
+    private static final class RuleSetColumns {
+
+        private final ProductRuleSet ruleSet;
+
+        // The groups using the rule set, to detect a replaced rule set
+        private final List<ProductGroup> productGroups;
+
+        private int[] positions;
+        // Base prices in cents
+        private long[] basePrices;
+        private int[] startQualities;
+        private long[] storeDays;
+        private long[] expiryDays;
+        private int size;
+
+        RuleSetColumns(ProductRuleSet ruleSet, ProductGroup productGroup) {
+            this.ruleSet = ruleSet;
+            this.productGroups = new ArrayList<>(List.of(productGroup));
+            this.positions = new int[16];
+            this.basePrices = new long[16];
+            this.startQualities = new int[16];
+            this.storeDays = new long[16];
+            this.expiryDays = new long[16];
+        }
+
+        void add(int position, Product product, ProductGroup productGroup) {
+            if (size == positions.length) {
+                int capacity = size * 2;
+                positions = Arrays.copyOf(positions, capacity);
+                basePrices = Arrays.copyOf(basePrices, capacity);
+                startQualities = Arrays.copyOf(startQualities, capacity);
+                storeDays = Arrays.copyOf(storeDays, capacity);
+                expiryDays = Arrays.copyOf(expiryDays, capacity);
+            }
+            if (productGroups.get(productGroups.size() - 1) != productGroup && !productGroups.contains(productGroup)) {
+                productGroups.add(productGroup);
+            }
+            positions[size] = position;
+            basePrices[size] = product.getBasePriceInCents();
+            startQualities[size] = product.getStartQuality();
+            storeDays[size] = product.getStoreDate().toEpochDay();
+            expiryDays[size] = product.getExpiryDate().toEpochDay();
+            size++;
+        }
+    }
+
+}
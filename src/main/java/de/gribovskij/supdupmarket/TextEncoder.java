@@ -0,0 +1,83 @@
+package de.gribovskij.supdupmarket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * Encodes buffered text, e.g. the daily report or CSV rows, into one reused
+ * off heap byte buffer and hands the encoded bytes block by block to a
+ * target.
+ *
+ * <p>
+ * An encoder is used by one thread at a time.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public final class TextEncoder {
+
+    /**
+     * The target of the encoded bytes.
+     */
+    @FunctionalInterface
+    public interface ByteTarget {
+
+        /**
+         * Writes all remaining bytes of the buffer.
+         *
+         * @param bytes the bytes to write
+         * @throws IOException if the bytes cannot be written
+         */
+        void write(ByteBuffer bytes) throws IOException;
+    }
+
+    private final CharsetEncoder encoder;
+
+    private final ByteBuffer bytes;
+
+    /**
+     * Creates an encoder.
+     *
+     * @param charset the charset to encode the text with
+     * @param bufferSize the size of the byte buffer, the maximum number of
+     * bytes handed to the target at once
+     */
+    public TextEncoder(Charset charset, int bufferSize) {
+        this.encoder = charset.newEncoder();
+        this.bytes = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Encodes the whole text and writes it to the target.
+     *
+     * @param text the text to encode
+     * @param target the target of the bytes
+     * @throws IOException if the text cannot be encoded or written
+     */
+    public void encode(CharSequence text, ByteTarget target) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        encoder.reset();
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, bytes, true);
+            if (result.isError()) {
+                result.throwException();
+            }
+            writeBytes(target);
+        } while (result.isOverflow());
+        while (encoder.flush(bytes).isOverflow()) {
+            writeBytes(target);
+        }
+        writeBytes(target);
+    }
+
+    private void writeBytes(ByteTarget target) throws IOException {
+        bytes.flip();
+        target.write(bytes);
+        bytes.clear();
+    }
+
+}
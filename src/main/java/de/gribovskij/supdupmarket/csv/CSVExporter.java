@@ -1,37 +1,79 @@
-package de.gribovskij.supdupmarket.csv;
-
-import com.opencsv.CSVWriter;
-import com.opencsv.bean.StatefulBeanToCsv;
-import com.opencsv.bean.StatefulBeanToCsvBuilder;
-import java.io.FileWriter;
-import java.util.List;
-
-/**
- * Utility class for exporting products to a CSV file.
- *
- * @author Eugen Gribovskij
- */
-public class CSVExporter {
-
-    /**
-     * Writes a list of products to a CSV file.
-     * <p>
-     * This method takes a file path and a list of products, then writes the
-     * product data to the specified CSV file.
-     * </p>
-     *
-     * @param filePath the path to the CSV file where the products will be
-     * written
-     * @param products the list of products to write to the CSV file
-     */
-    public static void writeProductsToCSV(String filePath, List<CSVProduct> products) {
-        try (FileWriter writer = new FileWriter(filePath)) {
-            StatefulBeanToCsv<CSVProduct> beanToCsv = new StatefulBeanToCsvBuilder<CSVProduct>(writer)
-                    .withQuotechar(CSVWriter.NO_QUOTE_CHARACTER)
-                    .build();
-            beanToCsv.write(products);
-        } catch (Exception e) {
-            System.err.println("Error exporting CSV file: " + e.getMessage());
-        }
-    }
-}
+package de.gribovskij.supdupmarket.csv;
+
+import de.gribovskij.supdupmarket.Product;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Utility class for exporting products to a CSV file.
+ *
+ * @author Eugen Gribovskij
+ */
+public class CSVExporter {
+
+    /**
+     * Writes a list of products to a CSV file.
+     * <p>
+     * This method takes a file path and a list of products, then writes the
+     * product data to the specified CSV file.
+     * </p>
+     *
+     * @param filePath the path to the CSV file where the products will be
+     * written
+     * @param products the list of products to write to the CSV file
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public static void writeProductsToCSV(String filePath, List<CSVProduct> products) {
+        try {
+            writeProductsToCSV(filePath, products.iterator());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error exporting CSV file: " + filePath, e);
+        }
+    }
+
+    /**
+     * Writes products to a CSV file while iterating them.
+     * <p>
+     * The products are formatted and written one by one through a
+     * {@link CSVProductWriter}, so they do not have to be collected before.
+     * </p>
+     *
+     * @param filePath the path to the CSV file where the products will be
+     * written
+     * @param products the products to write to the CSV file
+     * @return the number of written products
+     * @throws IOException if the file cannot be written
+     */
+    public static long writeProductsToCSV(String filePath, Iterator<CSVProduct> products) throws IOException {
+        try (CSVProductWriter writer = new CSVProductWriter(Path.of(filePath))) {
+            while (products.hasNext()) {
+                writer.writeRow(products.next());
+            }
+            return writer.getWrittenRows();
+        }
+    }
+
+    /**
+     * Writes shelf products to a CSV file while iterating them, without
+     * converting them to {@link CSVProduct} instances.
+     *
+     * @param filePath the path to the CSV file where the products will be
+     * written
+     * @param products the products to write to the CSV file
+     * @return the number of written products
+     * @throws IOException if the file cannot be written
+     */
+    public static long writeShelfProductsToCSV(String filePath, Iterator<Product> products) throws IOException {
+        try (CSVProductWriter writer = new CSVProductWriter(Path.of(filePath))) {
+            while (products.hasNext()) {
+                Product product = products.next();
+                writer.writeRow(product.getName(), product.getBasePriceInCents(), product.getExpiryDate(),
+                        product.getStartQuality(), product.getStoreDate(), product.getProductGroupName());
+            }
+            return writer.getWrittenRows();
+        }
+    }
+}
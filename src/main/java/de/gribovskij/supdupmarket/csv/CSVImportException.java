@@ -0,0 +1,38 @@
+package de.gribovskij.supdupmarket.csv;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Thrown if a CSV file cannot be imported completely, e.g. because it cannot
+ * be read or contains a malformed row.
+ *
+ * <p>
+ * The rows are passed on while the file is read, so the rows before the error
+ * have already been imported. Their number is given by
+ * {@link #getImportedRows()}.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class CSVImportException extends UncheckedIOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long importedRows;
+
+    public CSVImportException(String filePath, long importedRows, IOException cause) {
+        super("Error importing CSV file " + filePath + " after " + importedRows + " rows: " + cause.getMessage(), cause);
+        this.importedRows = importedRows;
+    }
+
+    // Getter
+    /**
+     * Returns the number of rows passed on before the error.
+     *
+     * @return the number of imported rows
+     */
+    public long getImportedRows() {
+        return importedRows;
+    }
+
+}
@@ -1,37 +1,310 @@
-package de.gribovskij.supdupmarket.csv;
-
-import com.opencsv.bean.CsvToBean;
-import com.opencsv.bean.CsvToBeanBuilder;
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- *
- * Utility class for importing products from a CSV file.
- *
- * @author Eugen Gribovskij
- */
-public class CSVImporter {
-
-    /**
-     * Reads products from a CSV file and returns a list of CSVProduct
-     * instances.
-     *
-     * @param filePath the path to the CSV file
-     * @return a list of CSVProduct instances read from the CSV file
-     */
-    public static List<CSVProduct> importProductsFromCSV(String filePath) {
-        try (FileReader reader = new FileReader(filePath)) {
-            CsvToBean<CSVProduct> csvToBean = new CsvToBeanBuilder<CSVProduct>(reader)
-                    .withType(CSVProduct.class)
-                    .withIgnoreLeadingWhiteSpace(true)
-                    .build();
-            return csvToBean.parse();
-        } catch (IOException e) {
-            System.err.println("Error reading CSV file: " + e.getMessage());
-            return new ArrayList<>();
-        }
-    }
-}
+package de.gribovskij.supdupmarket.csv;
+
+import com.opencsv.bean.CsvToBean;
+import com.opencsv.bean.CsvToBeanBuilder;
+import com.opencsv.exceptions.CsvException;
+import de.gribovskij.supdupmarket.metrics.MarketMetrics;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ *
+ * Utility class for importing products from a CSV file.
+ *
+ * @author Eugen Gribovskij
+ */
+public class CSVImporter {
+
+    // Chunks per thread, so threads finishing early can take over more work
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // Upper limit of a chunk, a mapped buffer is limited to 2 GB
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+
+    /**
+     * Reads products from a CSV file and returns a list of CSVProduct
+     * instances.
+     *
+     * @param filePath the path to the CSV file
+     * @return a list of CSVProduct instances read from the CSV file
+     * @throws CSVImportException if the file cannot be read or contains a
+     * malformed row
+     */
+    public static List<CSVProduct> importProductsFromCSV(String filePath) {
+        List<CSVProduct> csvProducts = new ArrayList<>();
+        importProductsFromCSV(filePath, csvProducts::add);
+        return csvProducts;
+    }
+
+    /**
+     * Reads products from a CSV file row by row and passes every product to
+     * the given consumer as soon as it is read.
+     * <p>
+     * The rows are not collected, so the memory needed stays constant
+     * regardless of the file size.
+     * </p>
+     *
+     * @param filePath the path to the CSV file
+     * @param productConsumer the consumer receiving every read product
+     * @return the number of products read from the CSV file
+     * @throws CSVImportException if the file cannot be read or contains a
+     * malformed row; the products before were passed to the consumer already
+     */
+    public static long importProductsFromCSV(String filePath, Consumer<CSVProduct> productConsumer) {
+        return importBeansFromCSV(filePath, CSVProduct.class, productConsumer);
+    }
+
+    /**
+     * Reads the rows of a CSV change file and passes every change to the given
+     * consumer as soon as it is read. Besides the product columns the file has
+     * an {@code OPERATION} column with one of the values of
+     * {@link CSVProductChange.Operation}.
+     *
+     * @param filePath the path to the CSV change file
+     * @param changeConsumer the consumer receiving every read change
+     * @return the number of changes read from the CSV file
+     * @throws CSVImportException if the file cannot be read or contains a
+     * malformed row; the changes before were passed to the consumer already
+     */
+    public static long importProductChangesFromCSV(String filePath, Consumer<CSVProductChange> changeConsumer) {
+        return importBeansFromCSV(filePath, CSVProductChange.class, changeConsumer);
+    }
+
+    private static <T> long importBeansFromCSV(String filePath, Class<T> type, Consumer<T> consumer) {
+        long startNanos = System.nanoTime();
+        long importedRows = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            CsvToBean<T> csvToBean = new CsvToBeanBuilder<T>(reader)
+                    .withType(type)
+                    .withIgnoreLeadingWhiteSpace(true)
+                    .build();
+            for (T bean : csvToBean) {
+                consumer.accept(bean);
+                importedRows++;
+            }
+        } catch (IOException e) {
+            throw new CSVImportException(filePath, importedRows, e);
+        } catch (RuntimeException e) {
+            // OpenCSV wraps malformed rows into runtime exceptions
+            if (e.getCause() instanceof CsvException csvException) {
+                throw new CSVImportException(filePath, importedRows, new IOException(csvException.getMessage(), csvException));
+            }
+            throw e;
+        }
+        MarketMetrics.recordCSVImport(importedRows, startNanos);
+        return importedRows;
+    }
+
+    /**
+     * Reads products from a CSV file row by row and passes the values of every
+     * row to the given handler.
+     * <p>
+     * Files in the product format written by {@link CSVExporter} are read by
+     * the reflection free {@link CSVProductParser}. All other layouts are read
+     * by OpenCSV.
+     * </p>
+     *
+     * @param filePath the path to the CSV file
+     * @param handler the handler receiving the values of every row
+     * @return the number of products read from the CSV file
+     * @throws CSVImportException if the file cannot be read or contains a
+     * malformed row; the rows before were passed to the handler already
+     */
+    public static long importProductRowsFromCSV(String filePath, CSVProductParser.RowHandler handler) {
+        long startNanos = System.nanoTime();
+        CSVProductParser parser = null;
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            parser = CSVProductParser.forFile(channel);
+            if (parser != null) {
+                long importedProducts = parser.parse(channel, handler);
+                MarketMetrics.recordCSVImport(importedProducts, startNanos);
+                return importedProducts;
+            }
+        } catch (IOException e) {
+            throw new CSVImportException(filePath, parser == null ? 0 : parser.getParsedRows(), e);
+        }
+
+        return importProductsFromCSV(filePath, csvProduct -> handler.handleRow(
+                csvProduct.getName(),
+                csvProduct.getBasePrice(),
+                toEpochDay(csvProduct.getExpiryDate()),
+                csvProduct.getStartQuality(),
+                toEpochDay(csvProduct.getStoreDate()),
+                csvProduct.getProductGroupName()));
+    }
+
+    /**
+     * Reads products from a CSV file in parallel.
+     * <p>
+     * Files in the product format are split into chunks aligned on line
+     * boundaries, which are memory mapped and parsed concurrently by the given
+     * number of threads. Every row is mapped by the given mapper on the parsing
+     * thread, so the mapper must be thread safe. The mapped rows of every chunk
+     * are passed to the chunk consumer on the calling thread, either in file
+     * order or as soon as a chunk is complete. Files in other layouts are read
+     * sequentially by OpenCSV and passed as one chunk.
+     * </p>
+     *
+     * @param <T> the type of the mapped rows
+     * @param filePath the path to the CSV file
+     * @param parallelism the number of threads used to parse the file
+     * @param preserveOrder true to pass the chunks in file order, false to
+     * pass them in the order they are completed
+     * @param mapper the thread safe mapper for every row
+     * @param chunkConsumer the consumer receiving the mapped rows of every
+     * chunk
+     * @return the number of products read from the CSV file
+     * @throws CSVImportException if the file cannot be read completely or the
+     * import is interrupted; the chunks before were passed to the chunk
+     * consumer already, {@link CSVImportException#getImportedRows()} counts
+     * their rows
+     */
+    public static <T> long importProductsFromCSVInParallel(String filePath, int parallelism, boolean preserveOrder,
+            CSVProductParser.RowMapper<T> mapper, Consumer<List<T>> chunkConsumer) {
+        long startNanos = System.nanoTime();
+        long[] chunkStarts;
+        CSVProductParser parser;
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            parser = CSVProductParser.forFile(channel);
+            if (parser != null) {
+                chunkStarts = splitIntoChunks(channel, channel.position(), parallelism * CHUNKS_PER_THREAD);
+            } else {
+                chunkStarts = null;
+            }
+        } catch (IOException e) {
+            throw new CSVImportException(filePath, 0, e);
+        }
+
+        if (parser == null) {
+            List<T> rows = new ArrayList<>();
+            long importedProducts = importProductRowsFromCSV(filePath, (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> {
+                T row = mapper.mapRow(name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName);
+                if (row != null) {
+                    rows.add(row);
+                }
+            });
+            chunkConsumer.accept(rows);
+            return importedProducts;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        // Rows of the chunks passed to the chunk consumer
+        long importedProducts = 0;
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            CompletionService<ParsedChunk<T>> completionService = new ExecutorCompletionService<>(executor);
+            List<Future<ParsedChunk<T>>> chunks = new ArrayList<>();
+            for (int chunk = 0; chunk < chunkStarts.length - 1; chunk++) {
+                long start = chunkStarts[chunk];
+                long size = chunkStarts[chunk + 1] - start;
+                chunks.add(completionService.submit(() -> parseChunk(channel.map(FileChannel.MapMode.READ_ONLY, start, size), parser.copy(), mapper)));
+            }
+
+            for (int chunk = 0; chunk < chunks.size(); chunk++) {
+                ParsedChunk<T> parsedChunk = preserveOrder ? chunks.get(chunk).get() : completionService.take().get();
+                chunkConsumer.accept(parsedChunk.rows());
+                importedProducts += parsedChunk.parsedRows();
+            }
+            MarketMetrics.recordCSVImport(importedProducts, startNanos);
+            return importedProducts;
+        } catch (IOException e) {
+            throw new CSVImportException(filePath, importedProducts, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw new CSVImportException(filePath, importedProducts, ioException);
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Parsing a chunk of " + filePath + " failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CSVImportException(filePath, importedProducts, new InterruptedIOException("Import interrupted"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> ParsedChunk<T> parseChunk(MappedByteBuffer buffer, CSVProductParser parser, CSVProductParser.RowMapper<T> mapper)
+            throws IOException {
+        List<T> rows = new ArrayList<>();
+        parser.parseRows(buffer, 0, buffer.limit(), true, (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> {
+            T row = mapper.mapRow(name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName);
+            if (row != null) {
+                rows.add(row);
+            }
+        });
+        return new ParsedChunk<>(rows, parser.getParsedRows());
+    }
+
+    /**
+     * The mapped rows of a chunk and the number of parsed rows, including the
+     * rows the mapper skipped.
+     */
+    private record ParsedChunk<T>(List<T> rows, long parsedRows) {
+    }
+
+    /**
+     * Splits the file from the given position into roughly equal chunks. Every
+     * chunk except the first starts directly after a line break.
+     *
+     * @return the start positions of all chunks followed by the file size
+     */
+    private static long[] splitIntoChunks(FileChannel channel, long dataStart, int chunkCount) throws IOException {
+        long fileSize = channel.size();
+        long chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE, (fileSize - dataStart + chunkCount - 1) / chunkCount));
+
+        List<Long> chunkStarts = new ArrayList<>();
+        chunkStarts.add(dataStart);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long position = dataStart + chunkSize;
+        while (position < fileSize) {
+            long lineStart = nextLineStart(channel, buffer, position);
+            if (lineStart >= fileSize) {
+                break;
+            }
+            if (lineStart - chunkStarts.get(chunkStarts.size() - 1) > Integer.MAX_VALUE) {
+                throw new IOException("Line too long at position " + position);
+            }
+            chunkStarts.add(lineStart);
+            position = lineStart + chunkSize;
+        }
+        chunkStarts.add(fileSize);
+        return chunkStarts.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long nextLineStart(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position - 1);
+            if (read <= 0) {
+                return channel.size();
+            }
+            int lineBreak = CSVProductParser.indexOf(buffer, (byte) '\n', 0, read);
+            if (lineBreak >= 0) {
+                return position + lineBreak;
+            }
+            position += read;
+        }
+    }
+
+    private static long toEpochDay(LocalDate date) {
+        return date == null ? CSVProductParser.NO_DATE : date.toEpochDay();
+    }
+}
@@ -0,0 +1,41 @@
+package de.gribovskij.supdupmarket.csv;
+
+import com.opencsv.bean.AbstractBeanField;
+import com.opencsv.exceptions.CsvDataTypeMismatchException;
+import de.gribovskij.supdupmarket.Money;
+
+/**
+ * Converts the base price column between euros with a decimal point in the
+ * CSV file and cents in {@link CSVProduct}.
+ *
+ * <p>
+ * Prices are written with two decimals, e.g. {@code 75.00}. Prices with any
+ * number of decimals are read and rounded half up to cents, an empty price
+ * is read as 0.</p>
+ *
+ * @param <T> the type of the bean
+ * @author Eugen Gribovskij
+ */
+public class CSVPriceConverter<T> extends AbstractBeanField<T, String> {
+
+    @Override
+    protected Object convert(String value) throws CsvDataTypeMismatchException {
+        if (value == null || value.isBlank()) {
+            // Like an empty primitive column
+            return 0L;
+        }
+        try {
+            return Money.parseEuros(value);
+        } catch (NumberFormatException | ArithmeticException e) {
+            CsvDataTypeMismatchException exception = new CsvDataTypeMismatchException(value, long.class, "Invalid price: " + value);
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    @Override
+    protected String convertToWrite(Object value) {
+        return Money.formatEuros((Long) value);
+    }
+
+}
@@ -0,0 +1,74 @@
+package de.gribovskij.supdupmarket.csv;
+
+import com.opencsv.bean.CsvBindByName;
+import java.time.LocalDate;
+
+/**
+ * Represents a row of a CSV change file, e.g. an intraday supplier update. A
+ * change consists of the product data and the operation to apply to the
+ * products of the batch identified by the name, the product group name and
+ * the expiry date.
+ *
+ * @author Eugen Gribovskij
+ */
+public class CSVProductChange extends CSVProduct {
+
+    /**
+     * The operations of a change file.
+     */
+    public enum Operation {
+        /**
+         * Adds the product to the shelf.
+         */
+        ADD,
+        /**
+         * Removes all products of the batch from the shelf.
+         */
+        REMOVE,
+        /**
+         * Replaces all products of the batch by the product, or adds the
+         * product if the batch is not stored.
+         */
+        UPDATE
+    }
+
+    @CsvBindByName(column = "Operation", required = true)
+    private Operation operation;
+
+    public CSVProductChange() {
+        // Required no-argument constructor for OpenCSV
+    }
+
+    /**
+     * Constructs a new CSVProductChange with specified attributes.
+     *
+     * @param operation the operation to apply
+     * @param name the product's name
+     * @param basePrice the product's base price in cents
+     * @param expiryDate the product's expiry date
+     * @param startQuality the product's initial quality
+     * @param productGroupName the name of the associated product group
+     */
+    public CSVProductChange(Operation operation, String name, long basePrice, LocalDate expiryDate, int startQuality, String productGroupName) {
+        super(name, basePrice, expiryDate, startQuality, null, productGroupName);
+        this.operation = operation;
+    }
+
+    // Getter / Setter
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    @Override
+    public String toString() {
+        return "CSVProductChange{" +
+                "operation=" + operation +
+                ", product=" + super.toString() +
+                '}';
+    }
+}
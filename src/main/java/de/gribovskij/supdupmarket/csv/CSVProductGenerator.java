@@ -0,0 +1,285 @@
+package de.gribovskij.supdupmarket.csv;
+
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.ProductGroup;
+import de.gribovskij.supdupmarket.ProductShelf;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+/**
+ * Generates any number of random products for load tests and benchmarks.
+ *
+ * <p>
+ * Every product is created from one of the {@link ProductTemplate templates},
+ * chosen by the weight of the template, with a price, shelf life and quality
+ * drawn evenly from the ranges of the template. The values only depend on the
+ * seed, so every call with the same seed and templates yields the same
+ * products.</p>
+ *
+ * <p>
+ * The products are created one by one while they are consumed, so millions of
+ * them can be written to a CSV file or added to a shelf without holding them
+ * in memory, see {@link #writeProductsToCSV(String, long)} and
+ * {@link #addProductsToShelf(ProductShelf, long, Function)}.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class CSVProductGenerator {
+
+    // Products added to a shelf at once
+    private static final int SHELF_BATCH_SIZE = 4096;
+
+    private static final long NOT_EXPIRING = LocalDate.MAX.toEpochDay();
+
+    private final long seed;
+
+    private final LocalDate storeDate;
+
+    private final List<ProductTemplate> templates;
+
+    // Sum of the weights up to and including each template
+    private final int[] cumulativeWeights;
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed the seed of the random values
+     * @param storeDate the store date of the products; the expiry dates are
+     * relative to it
+     * @param templates the templates of the products
+     * @throws IllegalArgumentException if there are no templates
+     */
+    public CSVProductGenerator(long seed, LocalDate storeDate, List<ProductTemplate> templates) {
+        if (templates.isEmpty()) {
+            throw new IllegalArgumentException("At least one product template is required");
+        }
+        this.seed = seed;
+        this.storeDate = storeDate;
+        this.templates = List.copyOf(templates);
+        this.cumulativeWeights = new int[templates.size()];
+        int totalWeight = 0;
+        for (int index = 0; index < templates.size(); index++) {
+            totalWeight = Math.addExact(totalWeight, templates.get(index).weight());
+            cumulativeWeights[index] = totalWeight;
+        }
+    }
+
+    /**
+     * Creates a generator for the cheese, wine and meat groups of the market
+     * in the ratio 2:1:1, with the ranges of the sample products of
+     * {@link CSVProductCreator}.
+     *
+     * @param seed the seed of the random values
+     * @param storeDate the store date of the products
+     * @return the generator
+     */
+    public static CSVProductGenerator withMarketTemplates(long seed, LocalDate storeDate) {
+        return new CSVProductGenerator(seed, storeDate, List.of(
+                ProductTemplate.expiring("Cheese", "Kaese", 2, 300, 9000, 50, 100, 30, 150),
+                ProductTemplate.notExpiring("Wine", "Wein", 1, 400, 20000, 10, 50),
+                ProductTemplate.expiring("Meat", "Fleisch", 1, 300, 3000, 5, 20, 1, 2)));
+    }
+
+    /**
+     * Creates the given number of products and hands their values to the
+     * handler, like {@link CSVProductParser} does for the rows of a file.
+     *
+     * @param count the number of products
+     * @param handler the handler of the product rows
+     */
+    public void generateProductRows(long count, CSVProductParser.RowHandler handler) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (long index = 1; index <= count; index++) {
+            generateProductRow(random, index, handler);
+        }
+    }
+
+    /**
+     * Returns an iterator creating the given number of CSV products while it
+     * is iterated.
+     *
+     * @param count the number of products
+     * @return the iterator of the products
+     */
+    public Iterator<CSVProduct> csvProducts(long count) {
+        return new CSVProductIterator(count);
+    }
+
+    /**
+     * Writes the given number of products to a CSV file, which can be read by
+     * {@link CSVImporter}.
+     *
+     * @param filePath the path to the CSV file
+     * @param count the number of products
+     * @return the number of written products
+     * @throws IOException if the file cannot be written
+     */
+    public long writeProductsToCSV(String filePath, long count) throws IOException {
+        return CSVExporter.writeProductsToCSV(filePath, csvProducts(count));
+    }
+
+    /**
+     * Adds the given number of products to a shelf, in batches of a few
+     * thousand products. Like {@link ProductShelf#addProducts} only the
+     * marketable products are stored.
+     *
+     * @param shelf the shelf to add the products to
+     * @param count the number of products
+     * @param productGroups resolves the product group of a template by its
+     * name, e.g. {@code MarketService::findProductGroup}
+     * @return the number of products stored on the shelf
+     */
+    public long addProductsToShelf(ProductShelf shelf, long count, Function<String, ProductGroup> productGroups) {
+        List<Product> batch = new ArrayList<>(SHELF_BATCH_SIZE);
+        int sizeBefore = shelf.size();
+        generateProductRows(count, (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> {
+            batch.add(new Product(name, basePrice, LocalDate.ofEpochDay(expiryEpochDay), startQuality, productGroupName,
+                    productGroups.apply(productGroupName)));
+            if (batch.size() == SHELF_BATCH_SIZE) {
+                shelf.addProducts(batch, storeDate);
+                batch.clear();
+            }
+        });
+        shelf.addProducts(batch, storeDate);
+        return (long) shelf.size() - sizeBefore;
+    }
+
+    private void generateProductRow(SplittableRandom random, long index, CSVProductParser.RowHandler handler) {
+        ProductTemplate template = nextTemplate(random);
+        long basePrice = random.nextLong(template.minPriceInCents(), template.maxPriceInCents() + 1);
+        long expiryEpochDay = template.expiring()
+                ? storeDate.toEpochDay() + random.nextInt(template.minShelfLifeDays(), template.maxShelfLifeDays() + 1)
+                : NOT_EXPIRING;
+        int startQuality = random.nextInt(template.minQuality(), template.maxQuality() + 1);
+        handler.handleRow(template.namePrefix() + " " + index, basePrice, expiryEpochDay, startQuality,
+                storeDate.toEpochDay(), template.productGroupName());
+    }
+
+    private ProductTemplate nextTemplate(SplittableRandom random) {
+        int weight = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+        while (cumulativeWeights[index] <= weight) {
+            index++;
+        }
+        return templates.get(index);
+    }
+
+    /**
+     * Creates the CSV products of {@link #csvProducts(long)} one by one.
+     */
+    private class CSVProductIterator implements Iterator<CSVProduct>, CSVProductParser.RowHandler {
+
+        private final SplittableRandom random = new SplittableRandom(seed);
+
+        private final long count;
+
+        private long index;
+
+        private CSVProduct product;
+
+        CSVProductIterator(long count) {
+            this.count = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < count;
+        }
+
+        @Override
+        public CSVProduct next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            generateProductRow(random, ++index, this);
+            return product;
+        }
+
+        @Override
+        public void handleRow(String name, long basePrice, long expiryEpochDay, int startQuality, long storeEpochDay, String productGroupName) {
+            product = new CSVProduct(name, basePrice, LocalDate.ofEpochDay(expiryEpochDay), startQuality,
+                    LocalDate.ofEpochDay(storeEpochDay), productGroupName);
+        }
+    }
+
+    // Getter
+    public long getSeed() {
+        return seed;
+    }
+
+    public LocalDate getStoreDate() {
+        return storeDate;
+    }
+
+    public List<ProductTemplate> getTemplates() {
+        return templates;
+    }
+
+    /**
+     * The ranges of the products of one kind, e.g. cheese. All ranges include
+     * their bounds.
+     *
+     * @param productGroupName the name of the product group of the products
+     * @param namePrefix the name of the products, followed by their number
+     * @param weight the share of the template in the generated products,
+     * relative to the weights of the other templates
+     * @param minPriceInCents the lowest base price
+     * @param maxPriceInCents the highest base price
+     * @param expiring false if the products never expire, like wine
+     * @param minShelfLifeDays the fewest days from the store date to the
+     * expiry date
+     * @param maxShelfLifeDays the most days from the store date to the expiry
+     * date
+     * @param minQuality the lowest start quality
+     * @param maxQuality the highest start quality
+     */
+    public record ProductTemplate(String productGroupName, String namePrefix, int weight, long minPriceInCents,
+            long maxPriceInCents, boolean expiring, int minShelfLifeDays, int maxShelfLifeDays, int minQuality, int maxQuality) {
+
+        public ProductTemplate {
+            if (weight < 1) {
+                throw new IllegalArgumentException("Weight must be positive");
+            }
+            if (minPriceInCents < 0 || minPriceInCents > maxPriceInCents) {
+                throw new IllegalArgumentException("Invalid price range: " + minPriceInCents + " to " + maxPriceInCents);
+            }
+            if (minShelfLifeDays < 0 || minShelfLifeDays > maxShelfLifeDays) {
+                throw new IllegalArgumentException("Invalid shelf life range: " + minShelfLifeDays + " to " + maxShelfLifeDays);
+            }
+            if (minQuality < 0 || minQuality > maxQuality) {
+                throw new IllegalArgumentException("Invalid quality range: " + minQuality + " to " + maxQuality);
+            }
+        }
+
+        /**
+         * Creates a template of expiring products.
+         *
+         * @return the template
+         * @see ProductTemplate
+         */
+        public static ProductTemplate expiring(String productGroupName, String namePrefix, int weight, long minPriceInCents,
+                long maxPriceInCents, int minShelfLifeDays, int maxShelfLifeDays, int minQuality, int maxQuality) {
+            return new ProductTemplate(productGroupName, namePrefix, weight, minPriceInCents, maxPriceInCents, true,
+                    minShelfLifeDays, maxShelfLifeDays, minQuality, maxQuality);
+        }
+
+        /**
+         * Creates a template of products which never expire.
+         *
+         * @return the template
+         * @see ProductTemplate
+         */
+        public static ProductTemplate notExpiring(String productGroupName, String namePrefix, int weight, long minPriceInCents,
+                long maxPriceInCents, int minQuality, int maxQuality) {
+            return new ProductTemplate(productGroupName, namePrefix, weight, minPriceInCents, maxPriceInCents, false,
+                    0, 0, minQuality, maxQuality);
+        }
+    }
+
+}
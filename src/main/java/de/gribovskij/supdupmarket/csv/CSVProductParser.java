@@ -0,0 +1,493 @@
+package de.gribovskij.supdupmarket.csv;
+
+import de.gribovskij.supdupmarket.Money;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Fast parser for CSV files in the fixed product format written by
+ * {@link CSVExporter}.
+ *
+ * <p>
+ * The parser works directly on the bytes of the file and passes the values of
+ * every row as primitives to a {@link RowHandler}. Prices are decoded to
+ * cents and qualities by hand and dates in the format {@code dd.MM.yyyy} are
+ * converted to epoch days without a {@link java.time.format.DateTimeFormatter}. No bean is
+ * created per row; only the product name is allocated as string, product group
+ * names are reused.</p>
+ *
+ * <p>
+ * Only files with exactly the six product columns in any order and without
+ * quoted values are supported. {@link #forHeader(String)} returns null for all
+ * other layouts, which are left to OpenCSV by {@link CSVImporter}.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class CSVProductParser {
+
+    /**
+     * Epoch day passed to the {@link RowHandler} for an empty date cell
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final String[] COLUMN_NAMES = {
+        "NAME", "BASE PRICE", "EXPIRY DATE", "START QUALITY", "STORE DATE", "PRODUCT GROUP NAME"
+    };
+
+    private static final int NAME = 0;
+    private static final int BASE_PRICE = 1;
+    private static final int EXPIRY_DATE = 2;
+    private static final int START_QUALITY = 3;
+    private static final int STORE_DATE = 4;
+    private static final int PRODUCT_GROUP_NAME = 5;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final int MAX_CACHED_GROUP_NAMES = 1024;
+
+    // Open addressing table of the cached group names, at most half full
+    private static final int GROUP_NAME_TABLE_SIZE = MAX_CACHED_GROUP_NAMES * 2;
+
+    /**
+     * Receives the values of one parsed product row.
+     */
+    public interface RowHandler {
+
+        /**
+         * Handles one product row.
+         *
+         * @param name the product's name
+         * @param basePrice the product's base price in cents
+         * @param expiryEpochDay the expiry date as epoch day or
+         * {@link #NO_DATE}
+         * @param startQuality the product's initial quality
+         * @param storeEpochDay the store date as epoch day or {@link #NO_DATE}
+         * @param productGroupName the name of the associated product group
+         */
+        void handleRow(String name, long basePrice, long expiryEpochDay, int startQuality, long storeEpochDay, String productGroupName);
+    }
+
+    /**
+     * Maps the values of one parsed product row to an object.
+     *
+     * @param <T> the type of the mapped objects
+     */
+    public interface RowMapper<T> {
+
+        /**
+         * Maps one product row, see {@link RowHandler#handleRow}.
+         *
+         * @return the mapped object or null to skip the row
+         */
+        T mapRow(String name, long basePrice, long expiryEpochDay, int startQuality, long storeEpochDay, String productGroupName);
+    }
+
+    // The product field of every column in the file
+    private final int[] columnFields;
+
+    private final byte[][] groupNameBytes;
+    private final String[] groupNames;
+    private int cachedGroupNames;
+
+    private byte[] scratch;
+
+    private long parsedRows;
+
+    // Values of the row currently parsed
+    private String name;
+    private long basePrice;
+    private long expiryEpochDay;
+    private int startQuality;
+    private long storeEpochDay;
+    private String productGroupName;
+
+    private CSVProductParser(int[] columnFields) {
+        this.columnFields = columnFields;
+        this.groupNameBytes = new byte[GROUP_NAME_TABLE_SIZE][];
+        this.groupNames = new String[GROUP_NAME_TABLE_SIZE];
+        this.scratch = new byte[256];
+    }
+
+    /**
+     * Creates a parser for a file with the given header line.
+     *
+     * @param headerLine the first line of the file
+     * @return a parser or null if the header does not describe the product
+     * format
+     */
+    public static CSVProductParser forHeader(String headerLine) {
+        String[] columns = headerLine.strip().split(",", -1);
+        if (columns.length != COLUMN_NAMES.length) {
+            return null;
+        }
+        int[] columnFields = new int[columns.length];
+        boolean[] mapped = new boolean[COLUMN_NAMES.length];
+        for (int column = 0; column < columns.length; column++) {
+            int field = Arrays.asList(COLUMN_NAMES).indexOf(columns[column].strip().toUpperCase(Locale.ROOT));
+            if (field < 0 || mapped[field]) {
+                return null;
+            }
+            mapped[field] = true;
+            columnFields[column] = field;
+        }
+        return new CSVProductParser(columnFields);
+    }
+
+    /**
+     * Reads the header line of the file and creates a parser for it. On
+     * success, the channel is positioned at the first data row.
+     *
+     * @param channel the channel of the CSV file, positioned at its start
+     * @return a parser or null if the file is not in the product format
+     * @throws IOException if the file cannot be read
+     */
+    public static CSVProductParser forFile(FileChannel channel) throws IOException {
+        long start = channel.position();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        channel.read(buffer);
+        int headerEnd = indexOf(buffer, (byte) '\n', 0, buffer.position());
+        if (headerEnd < 0) {
+            return null;
+        }
+        int headerStart = startsWithByteOrderMark(buffer) ? 3 : 0;
+        String headerLine = new String(buffer.array(), headerStart, headerEnd - headerStart, StandardCharsets.UTF_8);
+        channel.position(start + headerEnd + 1);
+        return forHeader(headerLine);
+    }
+
+    /**
+     * Parses all remaining rows of the channel.
+     *
+     * @param channel the channel of the CSV file, positioned at the first data
+     * row
+     * @param handler the handler receiving every row
+     * @return the number of parsed rows
+     * @throws IOException if the file cannot be read or contains a malformed
+     * row
+     */
+    public long parse(FileChannel channel, RowHandler handler) throws IOException {
+        long rowsBefore = parsedRows;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (true) {
+            boolean endOfInput = channel.read(buffer) < 0;
+            buffer.flip();
+            int consumed = parseRows(buffer, buffer.position(), buffer.limit(), endOfInput, handler);
+            if (endOfInput) {
+                return parsedRows - rowsBefore;
+            }
+            buffer.position(consumed);
+            buffer.compact();
+            if (!buffer.hasRemaining()) {
+                // A single row is larger than the buffer
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+            }
+        }
+    }
+
+    /**
+     * Parses the complete rows between the given positions of the buffer.
+     *
+     * @param buffer the buffer holding the rows
+     * @param from the position of the first row
+     * @param to the position after the last byte to parse
+     * @param endOfInput true if the last row ends at {@code to} even without a
+     * line break
+     * @param handler the handler receiving every row
+     * @return the position after the last parsed row
+     * @throws IOException if a row is malformed
+     */
+    public int parseRows(ByteBuffer buffer, int from, int to, boolean endOfInput, RowHandler handler) throws IOException {
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = indexOf(buffer, (byte) '\n', lineStart, to);
+            if (lineEnd < 0) {
+                if (!endOfInput) {
+                    return lineStart;
+                }
+                lineEnd = to;
+            }
+            int contentEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd > lineStart) {
+                parseRow(buffer, lineStart, contentEnd);
+                handler.handleRow(name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName);
+                parsedRows++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return to;
+    }
+
+    /**
+     * Creates a parser for the same column layout, e.g. to parse another part
+     * of the file in parallel. Parsers are not thread safe.
+     *
+     * @return a new parser
+     */
+    public CSVProductParser copy() {
+        return new CSVProductParser(columnFields);
+    }
+
+    private void parseRow(ByteBuffer buffer, int start, int end) throws IOException {
+        int fieldStart = start;
+        for (int column = 0; column < columnFields.length; column++) {
+            boolean lastColumn = column == columnFields.length - 1;
+            int fieldEnd = indexOf(buffer, (byte) ',', fieldStart, end);
+            if (lastColumn == (fieldEnd >= 0)) {
+                throw new IOException("Malformed product row, expected " + columnFields.length + " columns: " + describe(buffer, start, end));
+            }
+            if (lastColumn) {
+                fieldEnd = end;
+            }
+            parseField(columnFields[column], buffer, fieldStart, fieldEnd);
+            fieldStart = fieldEnd + 1;
+        }
+    }
+
+    private void parseField(int field, ByteBuffer buffer, int start, int end) throws IOException {
+        if (indexOf(buffer, (byte) '"', start, end) >= 0) {
+            throw new IOException("Quoted values are not supported: " + describe(buffer, start, end));
+        }
+        switch (field) {
+            case NAME ->
+                name = text(buffer, start, end);
+            // Empty numbers are read as 0 like by OpenCSV, see CSVPriceConverter
+            case BASE_PRICE ->
+                basePrice = isBlank(buffer, start, end) ? 0 : parsePrice(buffer, start, end);
+            case EXPIRY_DATE ->
+                expiryEpochDay = parseDate(buffer, start, end);
+            case START_QUALITY ->
+                startQuality = isBlank(buffer, start, end) ? 0 : parseInt(buffer, start, end);
+            case STORE_DATE ->
+                storeEpochDay = parseDate(buffer, start, end);
+            case PRODUCT_GROUP_NAME ->
+                productGroupName = groupName(buffer, start, end);
+            default ->
+                throw new IllegalStateException("Unknown field " + field);
+        }
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int start, int end) {
+        for (int position = start; position < end; position++) {
+            byte character = buffer.get(position);
+            if (character != ' ' && character != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a price in euros with a decimal point to cents. Further decimals
+     * are rounded half up like {@link Money#parseEuros(String)}.
+     */
+    private static long parsePrice(ByteBuffer buffer, int start, int end) throws IOException {
+        int position = start;
+        boolean negative = position < end && buffer.get(position) == '-';
+        if (negative || position < end && buffer.get(position) == '+') {
+            position++;
+        }
+        long cents = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        boolean roundUp = false;
+        for (; position < end; position++) {
+            byte character = buffer.get(position);
+            if (character == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (character >= '0' && character <= '9' && digits < 16) {
+                if (fractionDigits < 2) {
+                    cents = cents * 10 + (character - '0');
+                    digits++;
+                } else if (fractionDigits == 2) {
+                    roundUp = character >= '5';
+                }
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else {
+                // Exponents or more digits than fit into a long
+                return parsePriceSlow(buffer, start, end);
+            }
+        }
+        if (digits == 0) {
+            throw new IOException("Invalid number: " + describe(buffer, start, end));
+        }
+        for (int fraction = Math.max(fractionDigits, 0); fraction < 2; fraction++) {
+            cents *= 10;
+        }
+        if (roundUp) {
+            cents++;
+        }
+        return negative ? -cents : cents;
+    }
+
+    private static long parsePriceSlow(ByteBuffer buffer, int start, int end) throws IOException {
+        String number = describe(buffer, start, end);
+        try {
+            return Money.parseEuros(number);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IOException("Invalid number: " + number, e);
+        }
+    }
+
+    private static int parseInt(ByteBuffer buffer, int start, int end) throws IOException {
+        int position = start;
+        boolean negative = position < end && buffer.get(position) == '-';
+        if (negative || position < end && buffer.get(position) == '+') {
+            position++;
+        }
+        if (position == end) {
+            throw new IOException("Invalid number: " + describe(buffer, start, end));
+        }
+        long value = 0;
+        for (; position < end; position++) {
+            byte character = buffer.get(position);
+            if (character < '0' || character > '9' || value > Integer.MAX_VALUE) {
+                throw new IOException("Invalid number: " + describe(buffer, start, end));
+            }
+            value = value * 10 + (character - '0');
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IOException("Invalid number: " + describe(buffer, start, end));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Decodes a date in the format {@code dd.MM.yyyy} to its epoch day. Years
+     * with more than four digits are prefixed with a sign, like
+     * {@code 31.12.+999999999} for {@link java.time.LocalDate#MAX}.
+     */
+    private static long parseDate(ByteBuffer buffer, int start, int end) throws IOException {
+        if (start == end) {
+            return NO_DATE;
+        }
+        if (end - start < 10 || buffer.get(start + 2) != '.' || buffer.get(start + 5) != '.') {
+            throw new IOException("Invalid date, expected dd.MM.yyyy: " + describe(buffer, start, end));
+        }
+        int day = digit(buffer, start) * 10 + digit(buffer, start + 1);
+        int month = digit(buffer, start + 3) * 10 + digit(buffer, start + 4);
+        int position = start + 6;
+        if (buffer.get(position) == '+') {
+            position++;
+        }
+        if (end - position < 4 || end - position > 9) {
+            throw new IOException("Invalid date, expected dd.MM.yyyy: " + describe(buffer, start, end));
+        }
+        long year = 0;
+        for (; position < end; position++) {
+            year = year * 10 + digit(buffer, position);
+        }
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            throw new IOException("Invalid date: " + describe(buffer, start, end));
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Converts a date of the proleptic gregorian calendar to the number of days
+     * since 1970-01-01.
+     */
+    static long toEpochDay(long year, int month, int day) {
+        long shiftedYear = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(shiftedYear, 400);
+        long yearOfEra = shiftedYear - era * 400;
+        int shiftedMonth = month > 2 ? month - 3 : month + 9;
+        long dayOfYear = (153 * shiftedMonth + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int lengthOfMonth(long year, int month) {
+        return switch (month) {
+            case 2 ->
+                (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4, 6, 9, 11 ->
+                30;
+            default ->
+                31;
+        };
+    }
+
+    private static int digit(ByteBuffer buffer, int position) throws IOException {
+        int digit = buffer.get(position) - '0';
+        if (digit < 0 || digit > 9) {
+            throw new IOException("Invalid digit at byte " + position);
+        }
+        return digit;
+    }
+
+    /**
+     * Returns the group name of the given bytes. Group names repeat in every
+     * file, so they are cached in a hash table keyed by their bytes. Every
+     * group name is created only once and lookups of the product group by the
+     * returned name hit the cached hash code of the string.
+     */
+    private String groupName(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        int hash = 0;
+        for (int position = start; position < end; position++) {
+            hash = 31 * hash + buffer.get(position);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (GROUP_NAME_TABLE_SIZE - 1);
+        for (byte[] bytes; (bytes = groupNameBytes[slot]) != null; slot = (slot + 1) & (GROUP_NAME_TABLE_SIZE - 1)) {
+            if (bytes.length == length && equals(buffer, start, bytes)) {
+                return groupNames[slot];
+            }
+        }
+        String groupName = text(buffer, start, end);
+        if (cachedGroupNames < MAX_CACHED_GROUP_NAMES) {
+            groupNameBytes[slot] = groupName.getBytes(StandardCharsets.UTF_8);
+            groupNames[slot] = groupName;
+            cachedGroupNames++;
+        }
+        return groupName;
+    }
+
+    private static boolean equals(ByteBuffer buffer, int start, byte[] bytes) {
+        for (int index = 0; index < bytes.length; index++) {
+            if (buffer.get(start + index) != bytes[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String describe(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String text(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static boolean startsWithByteOrderMark(ByteBuffer buffer) {
+        return buffer.position() >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF;
+    }
+
+    static int indexOf(ByteBuffer buffer, byte value, int from, int to) {
+        for (int index = from; index < to; index++) {
+            if (buffer.get(index) == value) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    public long getParsedRows() {
+        return parsedRows;
+    }
+
+}
@@ -0,0 +1,183 @@
+package de.gribovskij.supdupmarket.csv;
+
+import de.gribovskij.supdupmarket.Money;
+import de.gribovskij.supdupmarket.TextEncoder;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes products row by row to a CSV file in the product format.
+ *
+ * <p>
+ * The output is identical to the format written by OpenCSV for
+ * {@link CSVProduct}. Rows are formatted directly into one reused character
+ * buffer, which is encoded and written to the file channel in large blocks, so
+ * no objects are created per row.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class CSVProductWriter implements Closeable {
+
+    private static final String HEADER = "BASE PRICE,EXPIRY DATE,NAME,PRODUCT GROUP NAME,START QUALITY,STORE DATE\n";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private final FileChannel channel;
+
+    private final StringBuilder rows;
+
+    private final TextEncoder encoder;
+
+    private final boolean forceOnClose;
+
+    private long writtenRows;
+
+    /**
+     * Creates the CSV file, including missing parent directories, and writes
+     * the header. The file is not forced to the storage device on close.
+     *
+     * @param filePath the path to the CSV file
+     * @throws IOException if the file cannot be created
+     */
+    public CSVProductWriter(Path filePath) throws IOException {
+        this(filePath, false);
+    }
+
+    /**
+     * Creates the CSV file, including missing parent directories, and writes
+     * the header.
+     *
+     * @param filePath the path to the CSV file
+     * @param forceOnClose whether {@link #close()} waits until the file
+     * content is written to the storage device
+     * @throws IOException if the file cannot be created
+     */
+    public CSVProductWriter(Path filePath, boolean forceOnClose) throws IOException {
+        Path parent = filePath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.rows = new StringBuilder(BUFFER_SIZE + 256);
+        this.encoder = new TextEncoder(StandardCharsets.UTF_8, BUFFER_SIZE * 2);
+        this.forceOnClose = forceOnClose;
+        rows.append(HEADER);
+    }
+
+    /**
+     * Writes one product row.
+     *
+     * @param name the product's name
+     * @param basePrice the product's base price in cents
+     * @param expiryDate the product's expiry date
+     * @param startQuality the product's initial quality
+     * @param storeDate the date the product was added to the shelf
+     * @param productGroupName the name of the associated product group
+     * @throws IOException if the row cannot be written
+     */
+    public void writeRow(String name, long basePrice, LocalDate expiryDate, int startQuality, LocalDate storeDate, String productGroupName) throws IOException {
+        Money.appendEuros(basePrice, rows).append(',');
+        appendDate(expiryDate);
+        rows.append(',');
+        appendText(name);
+        rows.append(',');
+        appendText(productGroupName);
+        rows.append(',').append(startQuality).append(',');
+        appendDate(storeDate);
+        rows.append('\n');
+        writtenRows++;
+
+        if (rows.length() >= BUFFER_SIZE) {
+            flushRows();
+        }
+    }
+
+    /**
+     * Writes one product row.
+     *
+     * @param csvProduct the product to write
+     * @throws IOException if the row cannot be written
+     */
+    public void writeRow(CSVProduct csvProduct) throws IOException {
+        writeRow(csvProduct.getName(), csvProduct.getBasePrice(), csvProduct.getExpiryDate(),
+                csvProduct.getStartQuality(), csvProduct.getStoreDate(), csvProduct.getProductGroupName());
+    }
+
+    /**
+     * Writes all buffered rows and closes the file. If requested, the file
+     * content is forced to the storage device before.
+     *
+     * @throws IOException if the rows cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            flushRows();
+            if (forceOnClose) {
+                channel.force(false);
+            }
+        }
+    }
+
+    private void appendText(String text) {
+        if (text != null) {
+            rows.append(text);
+        }
+    }
+
+    /**
+     * Appends a date in the format {@code dd.MM.yyyy}. Years with more than
+     * four digits are prefixed with a plus sign, like the
+     * {@link DateTimeFormatter} does.
+     */
+    private void appendDate(LocalDate date) {
+        if (date == null) {
+            return;
+        }
+        int year = date.getYear();
+        if (year < 1) {
+            DATE_FORMATTER.formatTo(date, rows);
+            return;
+        }
+        appendTwoDigits(date.getDayOfMonth());
+        rows.append('.');
+        appendTwoDigits(date.getMonthValue());
+        rows.append('.');
+        if (year > 9999) {
+            rows.append('+');
+        } else if (year < 1000) {
+            rows.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        }
+        rows.append(year);
+    }
+
+    private void appendTwoDigits(int value) {
+        rows.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private void flushRows() throws IOException {
+        encoder.encode(rows, this::writeBytes);
+        rows.setLength(0);
+    }
+
+    private void writeBytes(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    public long getWrittenRows() {
+        return writtenRows;
+    }
+
+}
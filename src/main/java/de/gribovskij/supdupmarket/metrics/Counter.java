@@ -0,0 +1,52 @@
+package de.gribovskij.supdupmarket.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counter which many threads can increment at once. The count is kept in a
+ * {@link LongAdder}, so concurrent increments go to different cells instead of
+ * contending for one value.
+ *
+ * @author Eugen Gribovskij
+ */
+public final class Counter implements Metric, CounterMBean {
+
+    private final String name;
+
+    private final LongAdder count;
+
+    Counter(String name) {
+        this.name = name;
+        this.count = new LongAdder();
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long value) {
+        count.add(value);
+    }
+
+    @Override
+    public StringBuilder appendText(StringBuilder target) {
+        return target.append(name).append(" count=").append(getCount());
+    }
+
+    @Override
+    public String toString() {
+        return appendText(new StringBuilder()).toString();
+    }
+
+    // Getter
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+}
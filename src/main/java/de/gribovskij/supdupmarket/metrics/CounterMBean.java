@@ -0,0 +1,14 @@
+package de.gribovskij.supdupmarket.metrics;
+
+/**
+ * The JMX view of a {@link Counter}.
+ *
+ * @author Eugen Gribovskij
+ */
+public interface CounterMBean {
+
+    String getName();
+
+    long getCount();
+
+}
@@ -0,0 +1,199 @@
+package de.gribovskij.supdupmarket.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non negative values, e.g. durations in nanoseconds, which
+ * many threads can record into at once.
+ *
+ * <p>
+ * Like an HDR histogram the values are counted in buckets of logarithmic
+ * width: every power of two is split into {@value #SUB_BUCKETS} buckets of
+ * equal width, values below {@value #SUB_BUCKETS} are counted exactly. So
+ * every percentile is reported with a relative error of at most about 3%,
+ * for any value up to {@link Long#MAX_VALUE}, in a fixed table of less than
+ * 2000 counts. Recording a value neither allocates nor locks.</p>
+ *
+ * <p>
+ * The bucket counts are striped: every thread counts into one of several
+ * copies of the table, chosen by its thread id, so threads recording similar
+ * values do not contend for the same count. The copies are only summed up
+ * when a percentile is read.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public final class Histogram implements Metric, HistogramMBean {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Exact buckets below SUB_BUCKETS and SUB_BUCKETS for each higher power of two
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    // Copies of the bucket counts, the number of processors rounded up to a power of two
+    private static final int STRIPES = Math.min(16, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private final String name;
+
+    // Bucket counts of the threads, by thread id
+    private final AtomicLongArray[] counts;
+
+    private final LongAdder count;
+
+    private final LongAdder sum;
+
+    private final LongAccumulator min;
+
+    private final LongAccumulator max;
+
+    Histogram(String name) {
+        this.name = name;
+        this.counts = new AtomicLongArray[STRIPES];
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            this.counts[stripe] = new AtomicLongArray(BUCKETS);
+        }
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value the value to record
+     */
+    public void record(long value) {
+        long recordedValue = Math.max(value, 0);
+        counts[(int) Thread.currentThread().threadId() & (STRIPES - 1)].incrementAndGet(bucketIndex(recordedValue));
+        count.increment();
+        sum.add(recordedValue);
+        min.accumulate(recordedValue);
+        max.accumulate(recordedValue);
+    }
+
+    /**
+     * Records the nanoseconds passed since the given start.
+     *
+     * @param startNanos the start as returned by {@link System#nanoTime()}
+     */
+    public void recordNanosSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the value below or at which the given percentage of the
+     * recorded values lie, within the precision of the buckets. The values
+     * recorded while the method runs may or may not be included.
+     *
+     * @param percentile the percentage, from 0 to 100
+     * @return the value at the percentile or 0 if no value was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (AtomicLongArray stripe : counts) {
+            for (int index = 0; index < BUCKETS; index++) {
+                snapshot[index] += stripe.get(index);
+            }
+        }
+        for (long bucketCount : snapshot) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int index = 0; index < BUCKETS; index++) {
+            seen += snapshot[index];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(index), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public StringBuilder appendText(StringBuilder target) {
+        return target.append(name).append(" count=").append(getCount())
+                .append(" min=").append(getMin())
+                .append(" mean=").append(Math.round(getMean()))
+                .append(" p50=").append(getP50())
+                .append(" p90=").append(getP90())
+                .append(" p99=").append(getP99())
+                .append(" max=").append(getMax());
+    }
+
+    @Override
+    public String toString() {
+        return appendText(new StringBuilder()).toString();
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        // The value shifted to SUB_BUCKETS to 2 * SUB_BUCKETS - 1 is the sub bucket
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    // Getter
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getMin() {
+        return getCount() == 0 ? 0 : min.get();
+    }
+
+    @Override
+    public long getMax() {
+        return max.get();
+    }
+
+    @Override
+    public double getMean() {
+        long currentCount = getCount();
+        return currentCount == 0 ? 0 : (double) sum.sum() / currentCount;
+    }
+
+    @Override
+    public long getP50() {
+        return getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getP90() {
+        return getValueAtPercentile(90);
+    }
+
+    @Override
+    public long getP99() {
+        return getValueAtPercentile(99);
+    }
+
+}
@@ -0,0 +1,26 @@
+package de.gribovskij.supdupmarket.metrics;
+
+/**
+ * The JMX view of a {@link Histogram}.
+ *
+ * @author Eugen Gribovskij
+ */
+public interface HistogramMBean {
+
+    String getName();
+
+    long getCount();
+
+    long getMin();
+
+    long getMax();
+
+    double getMean();
+
+    long getP50();
+
+    long getP90();
+
+    long getP99();
+
+}
@@ -0,0 +1,75 @@
+package de.gribovskij.supdupmarket.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registers every metric of a registry as an MBean of the platform MBean
+ * server, e.g. {@code de.gribovskij.supdupmarket:type=Histogram,name=shelf.sweepNanos},
+ * so they can be watched with JConsole or any JMX client. The MBeans read the
+ * live metrics, nothing is copied in the background.
+ *
+ * <p>
+ * Metrics added to the registry after the exporter was created are not
+ * registered.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public final class JmxMetricsExporter implements MetricsExporter {
+
+    public static final String DOMAIN = "de.gribovskij.supdupmarket";
+
+    private final MBeanServer server;
+
+    private final List<ObjectName> names;
+
+    /**
+     * Registers the metrics of the registry.
+     *
+     * @param registry the registry of the metrics
+     * @throws IllegalStateException if the metrics cannot be registered, e.g.
+     * because another exporter registered them already
+     */
+    public JmxMetricsExporter(MetricsRegistry registry) {
+        this.server = ManagementFactory.getPlatformMBeanServer();
+        this.names = new ArrayList<>();
+        try {
+            for (Metric metric : registry.getMetrics()) {
+                ObjectName name = new ObjectName(DOMAIN + ":type=" + metric.getClass().getSimpleName()
+                        + ",name=" + ObjectName.quote(metric.getName()));
+                server.registerMBean(metric, name);
+                names.add(name);
+            }
+        } catch (InstanceAlreadyExistsException e) {
+            close();
+            throw new IllegalStateException("Metrics are registered already", e);
+        } catch (JMException e) {
+            close();
+            throw new IllegalStateException("Registering the metrics failed", e);
+        }
+    }
+
+    /**
+     * Unregisters the metrics.
+     */
+    @Override
+    public void close() {
+        for (ObjectName name : names) {
+            try {
+                server.unregisterMBean(name);
+            } catch (InstanceNotFoundException e) {
+                // Unregistered by someone else
+            } catch (JMException e) {
+                throw new IllegalStateException("Unregistering " + name + " failed", e);
+            }
+        }
+        names.clear();
+    }
+
+}
@@ -0,0 +1,72 @@
+package de.gribovskij.supdupmarket.metrics;
+
+/**
+ * The metrics recorded by the market on its hot paths, all registered in
+ * {@link #REGISTRY}. Durations are in nanoseconds.
+ *
+ * @author Eugen Gribovskij
+ */
+public final class MarketMetrics {
+
+    /**
+     * The registry of all market metrics. The metrics are registered when the
+     * class is loaded, so they are complete once the registry is read.
+     */
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    /**
+     * Products stored by {@code ProductShelf.addProduct} and
+     * {@code addProducts}.
+     */
+    public static final Counter SHELF_ADDED_PRODUCTS = REGISTRY.counter("shelf.addedProducts");
+
+    /**
+     * Products rejected by {@code ProductShelf.addProduct} and
+     * {@code addProducts} because they were not marketable.
+     */
+    public static final Counter SHELF_REJECTED_PRODUCTS = REGISTRY.counter("shelf.rejectedProducts");
+
+    /**
+     * Products removed by each {@code ProductShelf.removeExpiredProducts}
+     * sweep.
+     */
+    public static final Histogram SHELF_SWEEP_PRODUCTS = REGISTRY.histogram("shelf.sweepProducts");
+
+    /**
+     * Duration of each {@code ProductShelf.removeExpiredProducts} sweep.
+     */
+    public static final Histogram SHELF_SWEEP_NANOS = REGISTRY.histogram("shelf.sweepNanos");
+
+    /**
+     * Rows read by the {@code CSVImporter}.
+     */
+    public static final Counter CSV_IMPORTED_ROWS = REGISTRY.counter("csv.importedRows");
+
+    /**
+     * Rows per second of each file read by the {@code CSVImporter}.
+     */
+    public static final Histogram CSV_IMPORT_ROWS_PER_SECOND = REGISTRY.histogram("csv.importRowsPerSecond");
+
+    /**
+     * Duration of each day of {@code MarketService.startMarketSimulation},
+     * including the rendering of its report.
+     */
+    public static final Histogram SIMULATION_DAY_NANOS = REGISTRY.histogram("simulation.dayNanos");
+
+    private MarketMetrics() {
+    }
+
+    /**
+     * Records the rows read from one CSV file.
+     *
+     * @param rows the number of read rows
+     * @param startNanos the start of the import as returned by
+     * {@link System#nanoTime()}
+     */
+    public static void recordCSVImport(long rows, long startNanos) {
+        long nanos = Math.max(1, System.nanoTime() - startNanos);
+        CSV_IMPORTED_ROWS.add(rows);
+        CSV_IMPORT_ROWS_PER_SECOND.record((long) (rows * 1e9 / nanos));
+    }
+
+}
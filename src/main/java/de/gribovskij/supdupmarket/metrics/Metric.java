@@ -0,0 +1,26 @@
+package de.gribovskij.supdupmarket.metrics;
+
+/**
+ * A named measurement of the market, registered in a {@link MetricsRegistry}.
+ *
+ * @author Eugen Gribovskij
+ */
+public sealed interface Metric permits Counter, Histogram {
+
+    /**
+     * Returns the name of the metric, e.g. {@code shelf.rejectedProducts}.
+     *
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * Appends the current values of the metric as one line without line
+     * break, starting with its name.
+     *
+     * @param target the builder to append to
+     * @return the target
+     */
+    StringBuilder appendText(StringBuilder target);
+
+}
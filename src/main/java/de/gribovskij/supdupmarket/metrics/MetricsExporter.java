@@ -0,0 +1,14 @@
+package de.gribovskij.supdupmarket.metrics;
+
+import java.io.Closeable;
+
+/**
+ * Publishes the metrics of a {@link MetricsRegistry} from its creation until
+ * it is closed, e.g. {@link JmxMetricsExporter} or
+ * {@link TextMetricsExporter}.
+ *
+ * @author Eugen Gribovskij
+ */
+public interface MetricsExporter extends Closeable {
+
+}
@@ -0,0 +1,80 @@
+package de.gribovskij.supdupmarket.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Metrics by their name, read by the exporters.
+ *
+ * <p>
+ * Metrics are looked up once, usually into a constant like those of
+ * {@link MarketMetrics}, and then updated directly, so the registry is not on
+ * the hot path.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public final class MetricsRegistry {
+
+    private final ConcurrentSkipListMap<String, Metric> metrics;
+
+    public MetricsRegistry() {
+        this.metrics = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Returns the counter with the given name, creating it if needed.
+     *
+     * @param name the name of the counter
+     * @return the counter
+     * @throws IllegalArgumentException if a histogram has the name
+     */
+    public Counter counter(String name) {
+        return get(name, Counter.class, Counter::new);
+    }
+
+    /**
+     * Returns the histogram with the given name, creating it if needed.
+     *
+     * @param name the name of the histogram
+     * @return the histogram
+     * @throws IllegalArgumentException if a counter has the name
+     */
+    public Histogram histogram(String name) {
+        return get(name, Histogram.class, Histogram::new);
+    }
+
+    /**
+     * Writes the current values of all metrics, one line per metric in the
+     * order of their names.
+     *
+     * @return the text of the metrics
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        for (Metric metric : metrics.values()) {
+            metric.appendText(text).append('\n');
+        }
+        return text.toString();
+    }
+
+    private <T extends Metric> T get(String name, Class<T> type, Function<String, T> factory) {
+        Metric metric = metrics.computeIfAbsent(name, factory);
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException("Metric with name '" + name + "' is not a " + type.getSimpleName() + ".");
+        }
+        return type.cast(metric);
+    }
+
+    // Getter
+    /**
+     * Returns all metrics.
+     *
+     * @return an unmodifiable view of the metrics, ordered by name
+     */
+    public Collection<Metric> getMetrics() {
+        return Collections.unmodifiableCollection(metrics.values());
+    }
+
+}
@@ -0,0 +1,92 @@
+package de.gribovskij.supdupmarket.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the metrics of a registry to a text file in a fixed period, one line
+ * per metric after a line with the time of the dump.
+ *
+ * <p>
+ * Every dump replaces the file as a whole, so readers always see a complete
+ * dump. The dumps are written by a daemon thread; a failed dump is reported
+ * on {@link System#err} and retried in the next period. Closing the exporter
+ * writes a last dump.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public final class TextMetricsExporter implements MetricsExporter {
+
+    private final MetricsRegistry registry;
+
+    private final Path filePath;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Creates the exporter and writes the first dump right away.
+     *
+     * @param registry the registry of the metrics
+     * @param filePath the path of the text file
+     * @param period the time between two dumps
+     */
+    public TextMetricsExporter(MetricsRegistry registry, Path filePath, Duration period) {
+        if (period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        this.registry = registry;
+        this.filePath = filePath.toAbsolutePath();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::dumpQuietly, 0, period.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Writes the current values of the metrics to the file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void dump() throws IOException {
+        String text = "# " + Instant.now() + "\n" + registry.toText();
+        Path temporaryFile = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+        Files.writeString(temporaryFile, text, StandardCharsets.UTF_8);
+        Files.move(temporaryFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Stops the periodic dumps and writes a last one.
+     *
+     * @throws IOException if the last dump cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dump();
+    }
+
+    private void dumpQuietly() {
+        try {
+            dump();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error writing metrics file: " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package de.gribovskij.supdupmarket.multistore;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * The result of one day of all stores: the {@link StoreDayResult} of every
+ * store and the totals over all stores.
+ *
+ * @author Eugen Gribovskij
+ */
+public final class MarketDayResult {
+
+    private final LocalDate date;
+
+    private final SortedMap<String, StoreDayResult> storeResults;
+
+    private final long removedProducts;
+
+    private final long storedProducts;
+
+    private final long totalPriceInCents;
+
+    MarketDayResult(LocalDate date, SortedMap<String, StoreDayResult> storeResults) {
+        this.date = date;
+        this.storeResults = Collections.unmodifiableSortedMap(storeResults);
+        long removed = 0;
+        long stored = 0;
+        long totalPrice = 0;
+        for (StoreDayResult storeResult : storeResults.values()) {
+            removed += storeResult.getRemovedProducts().size();
+            stored += storeResult.getStoredProducts();
+            totalPrice += storeResult.getTotalPriceInCents();
+        }
+        this.removedProducts = removed;
+        this.storedProducts = stored;
+        this.totalPriceInCents = totalPrice;
+    }
+
+    /**
+     * Returns the result of the given store.
+     *
+     * @param storeId the id of the store
+     * @return the result of the store or null if the store is unknown
+     */
+    public StoreDayResult getStoreResult(String storeId) {
+        return storeResults.get(storeId);
+    }
+
+    @Override
+    public String toString() {
+        return "MarketDayResult{" + "date=" + date + ", stores=" + storeResults.size() + ", removedProducts=" + removedProducts
+                + ", storedProducts=" + storedProducts + ", totalPriceInCents=" + totalPriceInCents + '}';
+    }
+
+    // Getter
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Returns the results of all stores.
+     *
+     * @return an unmodifiable map of the results by store id, ordered by store
+     * id
+     */
+    public Map<String, StoreDayResult> getStoreResults() {
+        return storeResults;
+    }
+
+    public long getRemovedProducts() {
+        return removedProducts;
+    }
+
+    public long getStoredProducts() {
+        return storedProducts;
+    }
+
+    public long getTotalPriceInCents() {
+        return totalPriceInCents;
+    }
+
+}
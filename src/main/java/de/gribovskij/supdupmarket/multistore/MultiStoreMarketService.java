@@ -0,0 +1,276 @@
+package de.gribovskij.supdupmarket.multistore;
+
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.ProductCatalog;
+import de.gribovskij.supdupmarket.ProductShelf;
+import de.gribovskij.supdupmarket.csv.CSVImportException;
+import de.gribovskij.supdupmarket.csv.CSVImporter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A market service for many stores in one process.
+ *
+ * <p>
+ * Every store has its own {@link ProductShelf}, its shard, while all stores
+ * share one immutable {@link ProductCatalog}. {@link #runDay(LocalDate)} runs
+ * the daily sweep and the pricing of all shards in parallel on a fixed number
+ * of threads. The queue of the executor is bounded; if it is full, the
+ * calling thread processes the shard itself, so the number of pending tasks
+ * stays bounded no matter how many stores are added. Once the service is
+ * closed, no more days can be run.</p>
+ *
+ * <p>
+ * Each shard is guarded by its own lock, so products can be added to one store
+ * while the day of other stores is processed. Readers can take a
+ * {@link ProductShelf#snapshot()} of a shelf at any time without locking.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class MultiStoreMarketService implements AutoCloseable {
+
+    private static final int TASKS_PER_THREAD = 4;
+
+    // Imported products added to a shelf at once
+    private static final int IMPORT_BATCH_SIZE = 4096;
+
+    private final ProductCatalog catalog;
+
+    private final NavigableMap<String, StoreShard> shards;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Creates a service without stores.
+     *
+     * @param catalog the product groups shared by all stores
+     * @param parallelism the number of threads processing the stores
+     */
+    public MultiStoreMarketService(ProductCatalog catalog, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.catalog = catalog;
+        this.shards = new ConcurrentSkipListMap<>();
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parallelism * TASKS_PER_THREAD), MultiStoreMarketService::runInCaller);
+    }
+
+    /**
+     * Adds a store with an empty shelf.
+     *
+     * @param storeId the id of the store
+     * @return the shelf of the store
+     * @throws IllegalArgumentException if a store with the id already exists
+     */
+    public ProductShelf addStore(String storeId) {
+        StoreShard shard = new StoreShard(storeId);
+        if (shards.putIfAbsent(storeId, shard) != null) {
+            throw new IllegalArgumentException("Store with id '" + storeId + "' already exists.");
+        }
+        return shard.shelf;
+    }
+
+    /**
+     * Adds all marketable products of the given collection to the shelf of a
+     * store.
+     *
+     * @param storeId the id of the store
+     * @param products the products to add; their product groups must be part
+     * of the catalog
+     * @param currentDate the date the products are added to the shelf
+     */
+    public void addProducts(String storeId, Collection<Product> products, LocalDate currentDate) {
+        shard(storeId).addProducts(products, currentDate);
+    }
+
+    /**
+     * Imports the products of a CSV file into the shelf of a store. The
+     * product groups are resolved through the catalog. The products are added
+     * in batches of a few thousand while the file is read, the shard is only
+     * locked while a batch is added.
+     *
+     * @param storeId the id of the store
+     * @param filePath the path to the CSV file
+     * @param currentDate the date the products are added to the shelf
+     * @return the number of read products
+     * @throws CSVImportException if the file cannot be read completely; the
+     * products read before stay on the shelf
+     */
+    public long importProducts(String storeId, String filePath, LocalDate currentDate) {
+        StoreShard shard = shard(storeId);
+        List<Product> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        long importedProducts = CSVImporter.importProductRowsFromCSV(filePath,
+                (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> {
+                    batch.add(new Product(name, basePrice, LocalDate.ofEpochDay(expiryEpochDay), startQuality,
+                            productGroupName, catalog.getProductGroup(productGroupName)));
+                    if (batch.size() == IMPORT_BATCH_SIZE) {
+                        shard.addProducts(batch, currentDate);
+                        batch.clear();
+                    }
+                });
+        shard.addProducts(batch, currentDate);
+        return importedProducts;
+    }
+
+    /**
+     * Runs one day of all stores: every shard removes its expired products and
+     * prices the products left on its shelf. The shards are processed in
+     * parallel; the method returns when all stores are done.
+     *
+     * @param currentDate the date of the day
+     * @return the results of all stores and the totals
+     * @throws IllegalStateException if the service is closed
+     */
+    public MarketDayResult runDay(LocalDate currentDate) {
+        if (executor.isShutdown()) {
+            throw new IllegalStateException("Service is closed");
+        }
+        List<Future<StoreDayResult>> futures = new ArrayList<>(shards.size());
+        try {
+            for (StoreShard shard : shards.values()) {
+                futures.add(executor.submit(() -> shard.runDay(currentDate)));
+            }
+        } catch (RejectedExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Service was closed while running day " + currentDate, e);
+        }
+        TreeMap<String, StoreDayResult> storeResults = new TreeMap<>();
+        try {
+            for (Future<StoreDayResult> future : futures) {
+                StoreDayResult storeResult = future.get();
+                storeResults.put(storeResult.getStoreId(), storeResult);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while running day " + currentDate, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Running day " + currentDate + " failed", e.getCause());
+        }
+        return new MarketDayResult(currentDate, storeResults);
+    }
+
+    /**
+     * Stops the threads of the service. Running days are finished first.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Processes a task, which does not fit into the queue anymore, on the
+     * calling thread. Unlike the CallerRunsPolicy the task is not discarded
+     * silently after the executor is shut down, the waiting day would never
+     * finish.
+     */
+    private static void runInCaller(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Service is closed");
+        }
+        task.run();
+    }
+
+    private StoreShard shard(String storeId) {
+        StoreShard shard = shards.get(storeId);
+        if (shard == null) {
+            throw new IllegalArgumentException("Store with id '" + storeId + "' not found.");
+        }
+        return shard;
+    }
+
+    // Getter
+    /**
+     * Returns the shelf of a store. The shelf should only be changed through
+     * the service; it can be read at any time through its
+     * {@link ProductShelf#snapshot()}.
+     *
+     * @param storeId the id of the store
+     * @return the shelf of the store
+     * @throws IllegalArgumentException if the store does not exist
+     */
+    public ProductShelf getShelf(String storeId) {
+        return shard(storeId).shelf;
+    }
+
+    /**
+     * Returns the ids of all stores.
+     *
+     * @return an unmodifiable view of the store ids, in ascending order
+     */
+    public Set<String> getStoreIds() {
+        return Collections.unmodifiableSet(shards.keySet());
+    }
+
+    public ProductCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * The shelf of one store together with its lock and price buffer.
+     */
+    private static final class StoreShard {
+
+        private final String storeId;
+
+        private final ProductShelf shelf;
+
+        private final ReentrantLock lock;
+
+        // Reused for pricing the shelf every day
+        private long[] prices;
+
+        StoreShard(String storeId) {
+            this.storeId = storeId;
+            this.shelf = new ProductShelf(List.of());
+            this.lock = new ReentrantLock();
+            this.prices = new long[0];
+        }
+
+        void addProducts(Collection<Product> products, LocalDate currentDate) {
+            lock.lock();
+            try {
+                shelf.addProducts(products, currentDate);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        StoreDayResult runDay(LocalDate currentDate) {
+            lock.lock();
+            try {
+                List<Product> removedProducts = shelf.removeExpiredProducts(currentDate);
+                if (prices.length < shelf.size()) {
+                    prices = new long[Math.max(shelf.size(), prices.length * 2)];
+                }
+                int storedProducts = shelf.getCurrentPrices(currentDate, prices);
+                long totalPrice = 0;
+                for (int index = 0; index < storedProducts; index++) {
+                    totalPrice += prices[index];
+                }
+                return new StoreDayResult(storeId, currentDate, removedProducts, storedProducts, totalPrice);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+}
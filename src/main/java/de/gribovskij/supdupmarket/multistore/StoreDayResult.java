@@ -0,0 +1,66 @@
+package de.gribovskij.supdupmarket.multistore;
+
+import de.gribovskij.supdupmarket.Product;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The result of one day of one store: the products removed by the daily sweep
+ * and the products left on the shelf with their total price.
+ *
+ * @author Eugen Gribovskij
+ */
+public final class StoreDayResult {
+
+    private final String storeId;
+
+    private final LocalDate date;
+
+    private final List<Product> removedProducts;
+
+    private final int storedProducts;
+
+    // Sum of the current prices of the stored products in cents
+    private final long totalPriceInCents;
+
+    StoreDayResult(String storeId, LocalDate date, List<Product> removedProducts, int storedProducts, long totalPriceInCents) {
+        this.storeId = storeId;
+        this.date = date;
+        this.removedProducts = removedProducts;
+        this.storedProducts = storedProducts;
+        this.totalPriceInCents = totalPriceInCents;
+    }
+
+    @Override
+    public String toString() {
+        return "StoreDayResult{" + "storeId=" + storeId + ", date=" + date + ", removedProducts=" + removedProducts.size()
+                + ", storedProducts=" + storedProducts + ", totalPriceInCents=" + totalPriceInCents + '}';
+    }
+
+    // Getter
+    public String getStoreId() {
+        return storeId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Returns the products removed by the daily sweep of the store.
+     *
+     * @return the removed products, in shelf order
+     */
+    public List<Product> getRemovedProducts() {
+        return removedProducts;
+    }
+
+    public int getStoredProducts() {
+        return storedProducts;
+    }
+
+    public long getTotalPriceInCents() {
+        return totalPriceInCents;
+    }
+
+}
@@ -0,0 +1,200 @@
+package de.gribovskij.supdupmarket.report;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ReportSink} handing the bytes to a writer thread, which writes them
+ * to another sink.
+ *
+ * <p>
+ * The bytes are copied into a fixed number of buffers, which are queued for
+ * the writer thread and reused once written. If all buffers are queued, e.g.
+ * because the console is slower than the simulation, {@link #write(ByteBuffer)}
+ * blocks until the writer thread returns a buffer. So the memory of the queued
+ * report is bounded, while the rendering thread does not wait for the I/O as
+ * long as the writer keeps up.</p>
+ *
+ * <p>
+ * An error of the writer thread, including unchecked exceptions of the
+ * underlying sink, is thrown by the next call of {@link #write(ByteBuffer)} or
+ * by {@link #close()}. The bytes queued after the error are discarded.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class AsyncReportSink implements ReportSink {
+
+    public static final int DEFAULT_BUFFER_COUNT = 16;
+
+    // Queued by close() to stop the writer thread
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    // Interval to check the writer thread while waiting for a free buffer
+    private static final long WAIT_MILLIS = 100;
+
+    private final ReportSink sink;
+
+    private final BlockingQueue<ByteBuffer> queuedBuffers;
+
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+
+    private final Thread writer;
+
+    private volatile Throwable failure;
+
+    private boolean closed;
+
+    /**
+     * Creates a sink with {@value #DEFAULT_BUFFER_COUNT} buffers of 64 KiB and
+     * starts its writer thread.
+     *
+     * @param sink the sink written by the writer thread
+     */
+    public AsyncReportSink(ReportSink sink) {
+        this(sink, DEFAULT_BUFFER_COUNT, ChannelReportSink.BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a sink and starts its writer thread.
+     *
+     * @param sink the sink written by the writer thread
+     * @param bufferCount the number of buffers, the maximum of queued buffers
+     * @param bufferSize the size of each buffer in bytes
+     */
+    public AsyncReportSink(ReportSink sink, int bufferCount, int bufferSize) {
+        if (bufferCount < 1 || bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer count and size must be positive");
+        }
+        this.sink = sink;
+        this.queuedBuffers = new ArrayBlockingQueue<>(bufferCount + 1);
+        this.freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+        for (int index = 0; index < bufferCount; index++) {
+            freeBuffers.add(ByteBuffer.allocate(bufferSize));
+        }
+        this.writer = new Thread(this::writeQueuedBuffers, "report-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a copy of the remaining bytes for the writer thread. Blocks while
+     * all buffers are queued.
+     *
+     * @param bytes the bytes to write
+     * @throws IOException if the writer thread failed or stopped before, or
+     * the sink is closed
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     * for a free buffer
+     */
+    @Override
+    public void write(ByteBuffer bytes) throws IOException {
+        if (closed) {
+            throw new IOException("Report sink is closed");
+        }
+        try {
+            while (bytes.hasRemaining()) {
+                ByteBuffer buffer = takeFreeBuffer();
+                int length = Math.min(bytes.remaining(), buffer.remaining());
+                buffer.put(buffer.position(), bytes, bytes.position(), length);
+                buffer.limit(length);
+                bytes.position(bytes.position() + length);
+                queuedBuffers.put(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queuing the report");
+        }
+    }
+
+    /**
+     * Waits until the writer thread has written all queued bytes and closes the
+     * underlying sink.
+     *
+     * @throws IOException if the writer thread failed or the sink cannot be
+     * closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queuedBuffers.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            writer.interrupt();
+            joinWriter();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing the report");
+        } finally {
+            // The writer thread has stopped, it does not use the sink anymore
+            sink.close();
+        }
+        checkFailure();
+    }
+
+    private ByteBuffer takeFreeBuffer() throws IOException, InterruptedException {
+        checkFailure();
+        ByteBuffer buffer;
+        while ((buffer = freeBuffers.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+            checkFailure();
+            if (!writer.isAlive()) {
+                throw new IOException("Report writer stopped");
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Waits for the interrupted writer thread, without being interrupted
+     * itself.
+     */
+    private void joinWriter() {
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                // The interrupt is restored by close()
+            }
+        }
+    }
+
+    private void writeQueuedBuffers() {
+        try {
+            ByteBuffer buffer;
+            while ((buffer = queuedBuffers.take()) != END) {
+                if (failure == null) {
+                    try {
+                        sink.write(buffer);
+                    } catch (IOException | RuntimeException | Error e) {
+                        failure = e;
+                    }
+                }
+                buffer.clear();
+                freeBuffers.add(buffer);
+            }
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("Report writer interrupted");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable currentFailure = failure;
+        if (currentFailure != null) {
+            throw new IOException("Writing the report failed", currentFailure);
+        }
+    }
+
+    // Getter
+    @Override
+    public Charset getCharset() {
+        return sink.getCharset();
+    }
+
+}
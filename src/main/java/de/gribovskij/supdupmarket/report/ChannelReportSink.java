@@ -0,0 +1,69 @@
+package de.gribovskij.supdupmarket.report;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * A {@link ReportSink} writing to a channel, see the factories of
+ * {@link ReportSink}.
+ *
+ * @author Eugen Gribovskij
+ */
+final class ChannelReportSink implements ReportSink {
+
+    static final int BUFFER_SIZE = 1 << 16;
+
+    static final ReportSink NONE = new ReportSink() {
+        @Override
+        public void write(ByteBuffer bytes) {
+            bytes.position(bytes.limit());
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    private final WritableByteChannel channel;
+
+    private final Charset charset;
+
+    // Flushed instead of closing the channel, e.g. System.out
+    private final Flushable flushable;
+
+    private final boolean closeChannel;
+
+    ChannelReportSink(WritableByteChannel channel, Charset charset, Flushable flushable, boolean closeChannel) {
+        this.channel = channel;
+        this.charset = charset;
+        this.flushable = flushable;
+        this.closeChannel = closeChannel;
+    }
+
+    @Override
+    public void write(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flushable != null) {
+            flushable.flush();
+        }
+        if (closeChannel) {
+            channel.close();
+        }
+    }
+
+    // Getter
+    @Override
+    public Charset getCharset() {
+        return charset;
+    }
+
+}
@@ -0,0 +1,186 @@
+package de.gribovskij.supdupmarket.report;
+
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.ProductShelfVersion;
+import de.gribovskij.supdupmarket.TextEncoder;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Renders the daily report of the market simulation: the status of every
+ * product on the shelf and of every product removed from it.
+ *
+ * <p>
+ * A day is rendered into one reused character buffer, with the headlines and
+ * separators computed once and the products appended through
+ * {@link Product#appendUserInfo(LocalDate, StringBuilder)}. The buffer is
+ * encoded into a reused byte buffer and written to the {@link ReportSink} once
+ * per day, instead of printing every product and separator on its own.</p>
+ *
+ * <p>
+ * The products of a {@link ProductShelfVersion} can be rendered in parts on a
+ * {@link ForkJoinPool}. Every part is rendered into its own reused builder; the
+ * parts are appended in shelf order, so the report does not differ from the
+ * sequential one.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class DailyReportRenderer implements Closeable {
+
+    private static final String REMOVED_PRODUCTS_HEADLINE = "#".repeat(10) + " Zu entfernende Produkte " + "#".repeat(10) + "\n";
+
+    private static final String REMOVED_PRODUCT_END = "#".repeat(REMOVED_PRODUCTS_HEADLINE.length() - 1) + "\n\n";
+
+    private static final String DAY_END = "-".repeat(REMOVED_PRODUCTS_HEADLINE.length() - 1) + "\n\n";
+
+    private static final String WELCOME = "#".repeat(10) + " Willkommen im SuperDuperMarkt! " + "#".repeat(10) + "\n";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Parts rendered in parallel per thread of the pool, to balance uneven parts
+    private static final int PARTS_PER_THREAD = 4;
+
+    private final ReportSink sink;
+
+    private final StringBuilder text;
+
+    private final TextEncoder encoder;
+
+    // Builders of the parts rendered in parallel, reused every day
+    private StringBuilder[] partTexts;
+
+    /**
+     * Creates a renderer writing to the given sink in the charset of the sink.
+     * The sink is closed with the renderer.
+     *
+     * @param sink the sink to write the report to
+     */
+    public DailyReportRenderer(ReportSink sink) {
+        this.sink = sink;
+        this.text = new StringBuilder(BUFFER_SIZE);
+        this.encoder = new TextEncoder(sink.getCharset(), BUFFER_SIZE);
+        this.partTexts = new StringBuilder[0];
+    }
+
+    /**
+     * Creates a renderer writing to the given sink through an
+     * {@link AsyncReportSink}, so the rendering thread does not wait for the
+     * I/O of the sink. The discarding {@link ReportSink#none()} is written
+     * directly.
+     *
+     * @param sink the sink to write the report to
+     * @return the renderer
+     */
+    public static DailyReportRenderer async(ReportSink sink) {
+        if (sink == ReportSink.none()) {
+            return new DailyReportRenderer(sink);
+        }
+        return new DailyReportRenderer(new AsyncReportSink(sink));
+    }
+
+    /**
+     * Writes the welcome line of the simulation.
+     *
+     * @throws IOException if the report cannot be written
+     */
+    public void renderWelcome() throws IOException {
+        text.append(WELCOME);
+        flush();
+    }
+
+    /**
+     * Renders and writes the report of one day.
+     *
+     * @param day the number of the day, starting with 1
+     * @param currentDate the date of the day
+     * @param products the products to report, e.g. the stored products
+     * @param removedProducts the products removed from the shelf on the day
+     * @throws IOException if the report cannot be written
+     */
+    public void renderDay(long day, LocalDate currentDate, Iterable<Product> products, List<Product> removedProducts) throws IOException {
+        appendDayHeadline(day, currentDate);
+        appendProducts(currentDate, products, text);
+        appendRemovedProducts(currentDate, removedProducts);
+        flush();
+    }
+
+    /**
+     * Renders and writes the report of one day like
+     * {@link #renderDay(long, LocalDate, Iterable, List)}, but renders the
+     * products in parts on the given pool. While the pool renders the later
+     * parts, the finished parts are appended to the report.
+     *
+     * @param day the number of the day, starting with 1
+     * @param currentDate the date of the day
+     * @param products the products to report, e.g. the stored products
+     * @param removedProducts the products removed from the shelf on the day
+     * @param pool the pool rendering the parts
+     * @throws IOException if the report cannot be written
+     */
+    public void renderDay(long day, LocalDate currentDate, ProductShelfVersion products, List<Product> removedProducts, ForkJoinPool pool) throws IOException {
+        List<Iterable<Product>> parts = products.split(pool.getParallelism() * PARTS_PER_THREAD);
+        if (partTexts.length < parts.size()) {
+            int knownParts = partTexts.length;
+            partTexts = Arrays.copyOf(partTexts, parts.size());
+            for (int index = knownParts; index < partTexts.length; index++) {
+                partTexts[index] = new StringBuilder();
+            }
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(parts.size());
+        for (int index = 0; index < parts.size(); index++) {
+            Iterable<Product> part = parts.get(index);
+            StringBuilder partText = partTexts[index];
+            partText.setLength(0);
+            tasks.add(pool.submit(() -> appendProducts(currentDate, part, partText)));
+        }
+
+        appendDayHeadline(day, currentDate);
+        for (int index = 0; index < tasks.size(); index++) {
+            tasks.get(index).join();
+            text.append(partTexts[index]);
+        }
+        appendRemovedProducts(currentDate, removedProducts);
+        flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            sink.close();
+        }
+    }
+
+    private void appendDayHeadline(long day, LocalDate currentDate) {
+        text.append("Tag ").append(day).append(" (").append(currentDate).append("):\n");
+    }
+
+    private static StringBuilder appendProducts(LocalDate currentDate, Iterable<Product> products, StringBuilder target) {
+        for (Product product : products) {
+            product.appendUserInfo(currentDate, target).append("\n\n");
+        }
+        return target;
+    }
+
+    private void appendRemovedProducts(LocalDate currentDate, List<Product> removedProducts) {
+        for (Product removedProduct : removedProducts) {
+            text.append(REMOVED_PRODUCTS_HEADLINE);
+            removedProduct.appendUserInfo(currentDate, text).append('\n');
+            text.append(REMOVED_PRODUCT_END);
+        }
+        text.append(DAY_END);
+    }
+
+    private void flush() throws IOException {
+        encoder.encode(text, sink::write);
+        text.setLength(0);
+    }
+
+}
@@ -0,0 +1,101 @@
+package de.gribovskij.supdupmarket.report;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The target of the encoded report of the market simulation, e.g. the
+ * console, a file or nothing at all.
+ *
+ * <p>
+ * A sink is written by one thread at a time. To keep the I/O off the thread
+ * rendering the report, a sink can be wrapped by an
+ * {@link AsyncReportSink}.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public interface ReportSink extends Closeable {
+
+    /**
+     * Writes all remaining bytes of the buffer.
+     *
+     * @param bytes the bytes to write
+     * @throws IOException if the bytes cannot be written
+     */
+    void write(ByteBuffer bytes) throws IOException;
+
+    /**
+     * Returns the charset the report has to be encoded with for this sink.
+     *
+     * @return the charset, UTF-8 by default
+     */
+    default Charset getCharset() {
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Returns a sink writing to the current {@link System#out} in its charset.
+     * Closing the sink flushes, but does not close {@link System#out}.
+     *
+     * @return the sink
+     */
+    static ReportSink console() {
+        return new ChannelReportSink(Channels.newChannel(System.out), System.out.charset(), System.out, false);
+    }
+
+    /**
+     * Returns a sink writing to a new UTF-8 file, including missing parent
+     * directories. An existing file is overwritten.
+     *
+     * @param filePath the path of the report file
+     * @return the sink
+     * @throws IOException if the file cannot be created
+     */
+    static ReportSink file(Path filePath) throws IOException {
+        createParentDirectories(filePath);
+        FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new ChannelReportSink(channel, StandardCharsets.UTF_8, null, true);
+    }
+
+    /**
+     * Returns a sink writing to a new GZIP compressed UTF-8 file, including
+     * missing parent directories. An existing file is overwritten.
+     *
+     * @param filePath the path of the report file, e.g. ending with ".gz"
+     * @return the sink
+     * @throws IOException if the file cannot be created
+     */
+    static ReportSink compressedFile(Path filePath) throws IOException {
+        createParentDirectories(filePath);
+        OutputStream output = new GZIPOutputStream(Files.newOutputStream(filePath), ChannelReportSink.BUFFER_SIZE);
+        return new ChannelReportSink(Channels.newChannel(output), StandardCharsets.UTF_8, null, true);
+    }
+
+    /**
+     * Returns a sink discarding all bytes, e.g. for benchmarks of the
+     * simulation.
+     *
+     * @return the sink
+     */
+    static ReportSink none() {
+        return ChannelReportSink.NONE;
+    }
+
+    private static void createParentDirectories(Path filePath) throws IOException {
+        Path parent = filePath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+    }
+
+}
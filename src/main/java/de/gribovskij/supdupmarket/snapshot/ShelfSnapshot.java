@@ -0,0 +1,305 @@
+package de.gribovskij.supdupmarket.snapshot;
+
+import de.gribovskij.supdupmarket.Money;
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.ProductGroup;
+import de.gribovskij.supdupmarket.ProductQualityChange;
+import de.gribovskij.supdupmarket.ProductRuleSet;
+import de.gribovskij.supdupmarket.ProductShelf;
+import de.gribovskij.supdupmarket.ProductShelfVersion;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of a {@link ProductShelf} together with the catalog of its
+ * {@link ProductGroup}s and their {@link ProductRuleSet}s.
+ *
+ * <p>
+ * The snapshot file consists of a header, a table of all distinct strings, a
+ * table of the product groups and one fixed width record per stored product.
+ * Strings are referenced by their index in the string table, dates are stored
+ * as epoch days. The file is loaded through a memory mapping, so restoring a
+ * shelf does not need to parse any text.</p>
+ *
+ * <pre>
+ * header:        int magic, short version, short reserved, int groups, int strings, long products
+ * string table:  per string: int length (-1 for null), UTF-8 bytes
+ * group table:   per group (32 bytes): int name, int userFriendlyName, byte expiring,
+ *                byte qualityChange, byte dailyPrice, byte expiryDiscount, int qualityChangeFactor,
+ *                int lowestQualityBoundary, int highestQualityBoundary, int daysUntilQualityChange,
+ *                int expiryDiscountInPercent
+ * product table: per product (48 bytes): long id, int name, int productGroupName, int group,
+ *                int startQuality, long basePriceInCents, long expiryDate, long storeDate
+ * </pre>
+ *
+ * <p>
+ * Version 1 snapshots have no product id, the restored products of these
+ * snapshots get new ids. Version 1 and 2 snapshots store the base price as
+ * double in euros, which is rounded half up to cents.</p>
+ *
+ * @author Eugen Gribovskij
+ */
+public class ShelfSnapshot {
+
+    // "SDMS" in ASCII
+    private static final int MAGIC = 0x53444D53;
+
+    private static final short VERSION = 3;
+
+    // Version with the base price as double in euros
+    private static final short VERSION_WITH_EURO_PRICES = 2;
+
+    // Version without product ids
+    private static final short VERSION_WITHOUT_IDS = 1;
+
+    private static final int GROUP_RECORD_SIZE = 32;
+
+    private static final int PRODUCT_RECORD_SIZE = 48;
+
+    private static final int PRODUCT_RECORD_SIZE_WITHOUT_IDS = 40;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final List<ProductGroup> productGroups;
+
+    private final ProductShelf shelf;
+
+    private ShelfSnapshot(List<ProductGroup> productGroups, ProductShelf shelf) {
+        this.productGroups = productGroups;
+        this.shelf = shelf;
+    }
+
+    /**
+     * Writes the products of the shelf and the product groups to a snapshot
+     * file. Product groups of stored products which are not part of the given
+     * list are added to the catalog of the snapshot.
+     *
+     * @param filePath the path of the snapshot file
+     * @param shelf the shelf to write
+     * @param productGroups the catalog of product groups
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path filePath, ProductShelf shelf, List<ProductGroup> productGroups) throws IOException {
+        // One version is written, even if the shelf changes meanwhile
+        ProductShelfVersion products = shelf.snapshot();
+
+        Map<ProductGroup, Integer> groupIndexes = new IdentityHashMap<>();
+        List<ProductGroup> groups = new ArrayList<>();
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (ProductGroup productGroup : productGroups) {
+            addGroup(productGroup, groupIndexes, groups, stringIndexes, strings);
+        }
+        for (Product product : products) {
+            addGroup(product.getProductGroup(), groupIndexes, groups, stringIndexes, strings);
+            addString(product.getName(), stringIndexes, strings);
+            addString(product.getProductGroupName(), stringIndexes, strings);
+        }
+
+        Path parent = filePath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0)
+                    .putInt(groups.size()).putInt(strings.size()).putLong(products.size());
+
+            for (String string : strings) {
+                ensureRemaining(channel, buffer, Integer.BYTES);
+                if (string == null) {
+                    buffer.putInt(-1);
+                    continue;
+                }
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                buffer.putInt(bytes.length);
+                for (int offset = 0; offset < bytes.length;) {
+                    ensureRemaining(channel, buffer, 1);
+                    int length = Math.min(buffer.remaining(), bytes.length - offset);
+                    buffer.put(bytes, offset, length);
+                    offset += length;
+                }
+            }
+
+            for (ProductGroup group : groups) {
+                ProductRuleSet ruleSet = group.getProductRule();
+                ensureRemaining(channel, buffer, GROUP_RECORD_SIZE);
+                buffer.putInt(stringIndexes.get(group.getName()))
+                        .putInt(stringIndexes.get(group.getUserFriendlyName()))
+                        .put(toByte(ruleSet.isExpiring()))
+                        .put((byte) ruleSet.getQualityChange().ordinal())
+                        .put(toByte(ruleSet.isDailyPrice()))
+                        .put(toByte(ruleSet.isExpiryDiscount()))
+                        .putInt(ruleSet.getQualityChangeFactor())
+                        .putInt(ruleSet.getLowestQualityBoundary())
+                        .putInt(ruleSet.getHighestQualityBoundary())
+                        .putInt(ruleSet.getDaysUntilQualityChange())
+                        .putInt(ruleSet.getExpiryDiscountInPercent());
+            }
+
+            for (Product product : products) {
+                ensureRemaining(channel, buffer, PRODUCT_RECORD_SIZE);
+                buffer.putLong(product.getId())
+                        .putInt(stringIndexes.get(product.getName()))
+                        .putInt(stringIndexes.get(product.getProductGroupName()))
+                        .putInt(groupIndexes.get(product.getProductGroup()))
+                        .putInt(product.getStartQuality())
+                        .putLong(product.getBasePriceInCents())
+                        .putLong(product.getExpiryDate().toEpochDay())
+                        .putLong(product.getStoreDate().toEpochDay());
+            }
+
+            writeBuffer(channel, buffer);
+        }
+    }
+
+    /**
+     * Reads a snapshot file and restores the product groups and the shelf.
+     * Restored products keep their original store date.
+     *
+     * @param filePath the path of the snapshot file
+     * @return the restored snapshot
+     * @throws IOException if the file cannot be read or is no supported
+     * snapshot
+     */
+    public static ShelfSnapshot read(Path filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(24);
+            if (channel.read(header, 0) < header.capacity()) {
+                throw new IOException("Not a shelf snapshot: " + filePath);
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a shelf snapshot: " + filePath);
+            }
+            short version = header.getShort();
+            if (version != VERSION && version != VERSION_WITH_EURO_PRICES && version != VERSION_WITHOUT_IDS) {
+                throw new IOException("Unsupported shelf snapshot version " + version + ": " + filePath);
+            }
+            header.getShort();
+            int groupCount = header.getInt();
+            int stringCount = header.getInt();
+            long productCount = header.getLong();
+            if (productCount > Integer.MAX_VALUE) {
+                throw new IOException("Too many products in shelf snapshot: " + productCount);
+            }
+
+            long position = header.capacity();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(channel.size() - position, Integer.MAX_VALUE));
+
+            String[] strings = new String[stringCount];
+            byte[] scratch = new byte[256];
+            for (int index = 0; index < stringCount; index++) {
+                int length = buffer.getInt();
+                if (length < 0) {
+                    continue;
+                }
+                if (scratch.length < length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                buffer.get(scratch, 0, length);
+                strings[index] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+
+            List<ProductGroup> productGroups = new ArrayList<>(groupCount);
+            for (int index = 0; index < groupCount; index++) {
+                String name = strings[buffer.getInt()];
+                String userFriendlyName = strings[buffer.getInt()];
+                boolean expiring = buffer.get() != 0;
+                ProductQualityChange qualityChange = ProductQualityChange.values()[buffer.get()];
+                boolean dailyPrice = buffer.get() != 0;
+                boolean expiryDiscount = buffer.get() != 0;
+                ProductRuleSet ruleSet = new ProductRuleSet(expiring, qualityChange, dailyPrice,
+                        buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), expiryDiscount, buffer.getInt());
+                productGroups.add(new ProductGroup(name, userFriendlyName, ruleSet));
+            }
+
+            // The product table may exceed the first mapping, it is mapped in windows of whole records
+            position += buffer.position();
+            boolean withIds = version != VERSION_WITHOUT_IDS;
+            boolean withCents = version == VERSION;
+            int recordSize = withIds ? PRODUCT_RECORD_SIZE : PRODUCT_RECORD_SIZE_WITHOUT_IDS;
+            long windowRecords = Integer.MAX_VALUE / recordSize;
+            List<Product> products = new ArrayList<>((int) productCount);
+            for (long first = 0; first < productCount; first += windowRecords) {
+                long records = Math.min(windowRecords, productCount - first);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position + first * recordSize, records * recordSize);
+                for (long record = 0; record < records; record++) {
+                    long id = withIds ? window.getLong() : 0;
+                    String name = strings[window.getInt()];
+                    String productGroupName = strings[window.getInt()];
+                    ProductGroup productGroup = productGroups.get(window.getInt());
+                    int startQuality = window.getInt();
+                    long basePrice = withCents ? window.getLong() : Money.ofEuros(window.getDouble());
+                    LocalDate expiryDate = LocalDate.ofEpochDay(window.getLong());
+                    LocalDate storeDate = LocalDate.ofEpochDay(window.getLong());
+
+                    Product product = withIds
+                            ? new Product(id, name, basePrice, expiryDate, startQuality, productGroupName, productGroup)
+                            : new Product(name, basePrice, expiryDate, startQuality, productGroupName, productGroup);
+                    product.setStoreDate(storeDate);
+                    products.add(product);
+                }
+            }
+
+            return new ShelfSnapshot(productGroups, new ProductShelf(products));
+        }
+    }
+
+    private static void addGroup(ProductGroup productGroup, Map<ProductGroup, Integer> groupIndexes, List<ProductGroup> groups,
+            Map<String, Integer> stringIndexes, List<String> strings) {
+        if (!groupIndexes.containsKey(productGroup)) {
+            groupIndexes.put(productGroup, groups.size());
+            groups.add(productGroup);
+            addString(productGroup.getName(), stringIndexes, strings);
+            addString(productGroup.getUserFriendlyName(), stringIndexes, strings);
+        }
+    }
+
+    private static void addString(String string, Map<String, Integer> stringIndexes, List<String> strings) {
+        if (!stringIndexes.containsKey(string)) {
+            stringIndexes.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    private static byte toByte(boolean value) {
+        return value ? (byte) 1 : (byte) 0;
+    }
+
+    private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            writeBuffer(channel, buffer);
+        }
+    }
+
+    private static void writeBuffer(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Getter
+    public List<ProductGroup> getProductGroups() {
+        return productGroups;
+    }
+
+    public ProductShelf getShelf() {
+        return shelf;
+    }
+
+}
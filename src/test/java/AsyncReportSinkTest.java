@@ -0,0 +1,101 @@
+
+import de.gribovskij.supdupmarket.report.AsyncReportSink;
+import de.gribovskij.supdupmarket.report.ReportSink;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eugen Gribovskij
+ */
+public class AsyncReportSinkTest {
+
+    @Test
+    public void testBytesAreWrittenInOrder() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        StringBuilder expected = new StringBuilder();
+        ReportSink slowSink = new ReportSink() {
+            @Override
+            public void write(ByteBuffer bytes) throws IOException {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                while (bytes.hasRemaining()) {
+                    output.write(bytes.get());
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        // Two buffers of 7 bytes, so the writes have to wait for the writer
+        try (AsyncReportSink sink = new AsyncReportSink(slowSink, 2, 7)) {
+            for (int day = 1; day <= 50; day++) {
+                String text = "Tag " + day + ":\n";
+                expected.append(text);
+                sink.write(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+
+        assertEquals(expected.toString(), output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testWriterFailureIsThrown() throws Exception {
+        ReportSink failingSink = new ReportSink() {
+            @Override
+            public void write(ByteBuffer bytes) throws IOException {
+                throw new IOException("Disk full");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        AsyncReportSink sink = new AsyncReportSink(failingSink, 2, 16);
+
+        // Thrown by a later write or at the latest by close
+        IOException exception = assertThrows(IOException.class, () -> {
+            for (int day = 1; day <= 50; day++) {
+                sink.write(ByteBuffer.wrap(new byte[100]));
+            }
+            sink.close();
+        });
+        assertEquals("Disk full", exception.getCause().getMessage());
+    }
+
+    @Test
+    public void testUncheckedWriterFailureIsThrown() throws Exception {
+        ReportSink failingSink = new ReportSink() {
+            @Override
+            public void write(ByteBuffer bytes) {
+                throw new IllegalStateException("Broken pipe");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        AsyncReportSink sink = new AsyncReportSink(failingSink, 2, 16);
+
+        // The writer thread keeps returning the buffers, so the writes do not block
+        IOException exception = assertThrows(IOException.class, () -> {
+            for (int day = 1; day <= 50; day++) {
+                sink.write(ByteBuffer.wrap(new byte[100]));
+            }
+            sink.close();
+        });
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
+}
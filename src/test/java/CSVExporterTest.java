@@ -0,0 +1,64 @@
+
+import com.opencsv.CSVWriter;
+import com.opencsv.bean.StatefulBeanToCsv;
+import com.opencsv.bean.StatefulBeanToCsvBuilder;
+import de.gribovskij.supdupmarket.MarketService;
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.csv.CSVExporter;
+import de.gribovskij.supdupmarket.csv.CSVImporter;
+import de.gribovskij.supdupmarket.csv.CSVProduct;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eugen Gribovskij
+ */
+public class CSVExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testExportMatchesOpenCSV() throws Exception {
+        List<CSVProduct> csvProducts = List.of(
+                new CSVProduct("Gouda", 7500, LocalDate.of(2026, 12, 17), 40, LocalDate.of(2026, 10, 18), "Cheese"),
+                new CSVProduct("Kaese mit Loechern", 10, LocalDate.of(999, 2, 1), 140, LocalDate.of(2024, 2, 29), "Cheese"),
+                new CSVProduct("Burgtrocken", 123456789, LocalDate.MAX, 20, LocalDate.of(2026, 10, 18), "Wine"),
+                new CSVProduct("Gefluegelbrust", -705, null, 2, null, "Meat"));
+
+        StringWriter openCSVOutput = new StringWriter();
+        StatefulBeanToCsv<CSVProduct> beanToCsv = new StatefulBeanToCsvBuilder<CSVProduct>(openCSVOutput)
+                .withQuotechar(CSVWriter.NO_QUOTE_CHARACTER)
+                .build();
+        beanToCsv.write(csvProducts);
+
+        Path csvFile = tempDir.resolve("export/products.csv");
+        long writtenRows = CSVExporter.writeProductsToCSV(csvFile.toString(), csvProducts.iterator());
+
+        assertEquals(4, writtenRows);
+        assertEquals(openCSVOutput.toString(), Files.readString(csvFile));
+    }
+
+    @Test
+    public void testShelfExportRoundTrip() throws Exception {
+        MarketService marketService = new MarketService();
+        Path csvFile = tempDir.resolve("shelf.csv");
+
+        long exportedProducts = marketService.exportProducts(csvFile.toString());
+
+        List<String> importedNames = new ArrayList<>();
+        CSVImporter.importProductsFromCSV(csvFile.toString(), csvProduct -> importedNames.add(csvProduct.getName()));
+        List<String> storedNames = marketService.getShelf().getStoredProducts().stream().map(Product::getName).toList();
+        assertEquals(storedNames.size(), exportedProducts);
+        assertEquals(storedNames, importedNames);
+    }
+
+}
@@ -0,0 +1,159 @@
+
+import de.gribovskij.supdupmarket.csv.CSVImportException;
+import de.gribovskij.supdupmarket.csv.CSVImporter;
+import de.gribovskij.supdupmarket.csv.CSVProduct;
+import de.gribovskij.supdupmarket.csv.CSVProductParser;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eugen Gribovskij
+ */
+public class CSVImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testFastPathMatchesOpenCSV() throws IOException {
+        Path csvFile = tempDir.resolve("products.csv");
+        Files.writeString(csvFile, """
+                BASE PRICE,EXPIRY DATE,NAME,PRODUCT GROUP NAME,START QUALITY,STORE DATE\r
+                75.0,17.12.2026,Gouda,Cheese,40,18.10.2026\r
+                0.1,29.02.2024,Kaese mit Loechern,Cheese,140,01.01.1999\r
+                40.055,31.12.+999999999,Burgtrocken,Wine,20,18.10.2026\r
+                ,17.12.2026,Brie,Cheese,,18.10.2026\r
+                1234567.891,01.03.2000,Gefluegelbrust,Meat,2,28.02.2000""");
+
+        List<String> openCSVRows = new ArrayList<>();
+        for (CSVProduct csvProduct : CSVImporter.importProductsFromCSV(csvFile.toString())) {
+            openCSVRows.add(csvProduct.getName() + "|" + csvProduct.getBasePrice() + "|" + csvProduct.getExpiryDate()
+                    + "|" + csvProduct.getStartQuality() + "|" + csvProduct.getStoreDate() + "|" + csvProduct.getProductGroupName());
+        }
+
+        List<String> fastRows = new ArrayList<>();
+        long importedRows = CSVImporter.importProductRowsFromCSV(csvFile.toString(),
+                (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> fastRows.add(
+                        name + "|" + basePrice + "|" + LocalDate.ofEpochDay(expiryEpochDay) + "|" + startQuality
+                        + "|" + LocalDate.ofEpochDay(storeEpochDay) + "|" + productGroupName));
+
+        assertEquals(5, importedRows);
+        assertEquals(openCSVRows, fastRows);
+        // Empty cells are read as 0 like empty primitive columns
+        assertEquals("Brie|0|2026-12-17|0|2026-10-18|Cheese", fastRows.get(3));
+    }
+
+    @Test
+    public void testFallbackForOtherLayouts() throws IOException {
+        Path csvFile = tempDir.resolve("products.csv");
+        Files.writeString(csvFile, """
+                NAME,BASE PRICE,EXPIRY DATE,START QUALITY,STORE DATE,PRODUCT GROUP NAME,COMMENT
+                "Gouda, jung",75.0,17.12.2026,40,18.10.2026,Cheese,lecker
+                """);
+
+        assertNull(CSVProductParser.forHeader(Files.readAllLines(csvFile).get(0)));
+
+        List<String> names = new ArrayList<>();
+        long importedRows = CSVImporter.importProductRowsFromCSV(csvFile.toString(),
+                (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> names.add(name));
+
+        assertEquals(1, importedRows);
+        assertEquals(List.of("Gouda, jung"), names);
+    }
+
+    @Test
+    public void testMalformedRowFailsImport() throws IOException {
+        Path csvFile = tempDir.resolve("products.csv");
+        Files.writeString(csvFile, """
+                BASE PRICE,EXPIRY DATE,NAME,PRODUCT GROUP NAME,START QUALITY,STORE DATE
+                75.0,17.12.2026,Gouda,Cheese,40,18.10.2026
+                40.0,31.12.+999999999,Burgtrocken,Wine,20,18.10.2026
+                12.0,17.12.2026,Gefluegelbrust,Meat
+                """);
+        Path otherLayoutFile = tempDir.resolve("other.csv");
+        Files.writeString(otherLayoutFile, """
+                NAME,BASE PRICE,EXPIRY DATE,START QUALITY,STORE DATE,PRODUCT GROUP NAME,COMMENT
+                Gouda,75.0,17.12.2026,40,18.10.2026,Cheese,lecker
+                Edamer,teuer,17.12.2026,40,18.10.2026,Cheese,lecker
+                """);
+
+        List<String> names = new ArrayList<>();
+        CSVImportException exception = assertThrows(CSVImportException.class, () -> CSVImporter.importProductRowsFromCSV(csvFile.toString(),
+                (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> names.add(name)));
+        assertEquals(2, exception.getImportedRows());
+        assertEquals(List.of("Gouda", "Burgtrocken"), names);
+
+        names.clear();
+        exception = assertThrows(CSVImportException.class, () -> CSVImporter.importProductRowsFromCSV(otherLayoutFile.toString(),
+                (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> names.add(name)));
+        // OpenCSV reads ahead, so the rows before the malformed row may not be passed on
+        assertEquals(names.size(), exception.getImportedRows());
+        assertFalse(names.contains("Edamer"));
+
+        exception = assertThrows(CSVImportException.class, () -> CSVImporter.importProductsFromCSV(tempDir.resolve("missing.csv").toString()));
+        assertEquals(0, exception.getImportedRows());
+    }
+
+    @Test
+    public void testParallelImportMatchesSequential() throws IOException {
+        Path csvFile = tempDir.resolve("products.csv");
+        StringBuilder csv = new StringBuilder("NAME,BASE PRICE,EXPIRY DATE,START QUALITY,STORE DATE,PRODUCT GROUP NAME\n");
+        Random random = new Random(42);
+        for (int row = 0; row < 20_000; row++) {
+            csv.append("Product ").append(row).append(',')
+                    .append(random.nextInt(10_000) / 100.0).append(',')
+                    .append(String.format("%02d.%02d.%d", 1 + random.nextInt(28), 1 + random.nextInt(12), 2024 + random.nextInt(3))).append(',')
+                    .append(random.nextInt(100)).append(",18.10.2024,")
+                    .append(random.nextBoolean() ? "Cheese" : "Meat").append('\n');
+        }
+        Files.writeString(csvFile, csv);
+
+        List<String> sequentialRows = new ArrayList<>();
+        CSVImporter.importProductRowsFromCSV(csvFile.toString(),
+                (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> sequentialRows.add(
+                        name + "|" + basePrice + "|" + expiryEpochDay + "|" + startQuality + "|" + storeEpochDay + "|" + productGroupName));
+
+        List<String> parallelRows = new ArrayList<>();
+        long importedRows = CSVImporter.importProductsFromCSVInParallel(csvFile.toString(), 4, true,
+                (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName)
+                -> name + "|" + basePrice + "|" + expiryEpochDay + "|" + startQuality + "|" + storeEpochDay + "|" + productGroupName,
+                parallelRows::addAll);
+
+        assertEquals(20_000, importedRows);
+        assertEquals(sequentialRows, parallelRows);
+    }
+
+    @Test
+    public void testParallelImportReportsFailedChunks() throws IOException {
+        Path csvFile = tempDir.resolve("products.csv");
+        StringBuilder csv = new StringBuilder("NAME,BASE PRICE,EXPIRY DATE,START QUALITY,STORE DATE,PRODUCT GROUP NAME\n");
+        for (int row = 0; row < 20_000; row++) {
+            csv.append("Product ").append(row).append(row == 15_000 ? ",12.0,17.12.2026\n" : ",12.0,17.12.2026,40,18.10.2024,Cheese\n");
+        }
+        Files.writeString(csvFile, csv);
+
+        List<String> names = new ArrayList<>();
+        CSVImportException exception = assertThrows(CSVImportException.class, () -> CSVImporter.importProductsFromCSVInParallel(
+                csvFile.toString(), 4, true, (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> name,
+                names::addAll));
+        assertEquals(names.size(), exception.getImportedRows());
+        assertTrue(names.size() < 15_000);
+
+        Thread.currentThread().interrupt();
+        assertThrows(CSVImportException.class, () -> CSVImporter.importProductsFromCSVInParallel(
+                csvFile.toString(), 4, false, (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> name,
+                chunk -> {
+                }));
+        assertTrue(Thread.interrupted());
+    }
+
+}
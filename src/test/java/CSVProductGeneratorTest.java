@@ -0,0 +1,84 @@
+
+import de.gribovskij.supdupmarket.MarketService;
+import de.gribovskij.supdupmarket.csv.CSVImporter;
+import de.gribovskij.supdupmarket.csv.CSVProduct;
+import de.gribovskij.supdupmarket.csv.CSVProductGenerator;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eugen Gribovskij
+ */
+public class CSVProductGeneratorTest {
+
+    private static final LocalDate STORE_DATE = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testSameSeedGeneratesSameProducts() {
+        List<String> products = rows(CSVProductGenerator.withMarketTemplates(42, STORE_DATE).csvProducts(10000));
+
+        assertEquals(products, rows(CSVProductGenerator.withMarketTemplates(42, STORE_DATE).csvProducts(10000)));
+        assertNotEquals(products, rows(CSVProductGenerator.withMarketTemplates(43, STORE_DATE).csvProducts(10000)));
+
+        Map<String, Integer> groupCounts = new HashMap<>();
+        CSVProductGenerator.withMarketTemplates(42, STORE_DATE).generateProductRows(10000,
+                (name, basePrice, expiryEpochDay, startQuality, storeEpochDay, productGroupName) -> {
+                    groupCounts.merge(productGroupName, 1, Integer::sum);
+                    if (productGroupName.equals("Meat")) {
+                        long shelfLife = expiryEpochDay - STORE_DATE.toEpochDay();
+                        assertTrue(shelfLife >= 5 && shelfLife <= 20);
+                        assertTrue(startQuality >= 1 && startQuality <= 2);
+                    }
+                });
+        assertEquals(5000, groupCounts.get("Cheese"), 200); // Weights 2:1:1
+        assertEquals(2500, groupCounts.get("Wine"), 200);
+        assertEquals(2500, groupCounts.get("Meat"), 200);
+    }
+
+    @Test
+    public void testWrittenProductsCanBeImported() throws IOException {
+        CSVProductGenerator generator = CSVProductGenerator.withMarketTemplates(7, STORE_DATE);
+        Path csvFile = tempDir.resolve("products.csv");
+
+        assertEquals(20000, generator.writeProductsToCSV(csvFile.toString(), 20000));
+
+        assertEquals(rows(generator.csvProducts(20000)), rows(CSVImporter.importProductsFromCSV(csvFile.toString()).iterator()));
+    }
+
+    @Test
+    public void testProductsAreAddedToShelf() {
+        MarketService marketService = new MarketService();
+        int sizeBefore = marketService.getShelf().size();
+        CSVProductGenerator generator = CSVProductGenerator.withMarketTemplates(7, STORE_DATE);
+
+        long storedProducts = generator.addProductsToShelf(marketService.getShelf(), 10000, marketService::findProductGroup);
+
+        assertEquals(10000, storedProducts);
+        assertEquals(sizeBefore + 10000, marketService.getShelf().size());
+        assertEquals("Kaese 1", marketService.getShelf().getStoredProducts().get(sizeBefore).getName());
+    }
+
+    private static List<String> rows(Iterator<CSVProduct> csvProducts) {
+        List<String> rows = new ArrayList<>();
+        while (csvProducts.hasNext()) {
+            CSVProduct csvProduct = csvProducts.next();
+            rows.add(csvProduct.getName() + "|" + csvProduct.getBasePrice() + "|" + csvProduct.getExpiryDate()
+                    + "|" + csvProduct.getStartQuality() + "|" + csvProduct.getStoreDate() + "|" + csvProduct.getProductGroupName());
+        }
+        return rows;
+    }
+
+}
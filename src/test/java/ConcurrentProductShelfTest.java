@@ -0,0 +1,160 @@
+
+import de.gribovskij.supdupmarket.ConcurrentProductShelf;
+import de.gribovskij.supdupmarket.MarketService;
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.ProductGroup;
+import de.gribovskij.supdupmarket.ProductKey;
+import de.gribovskij.supdupmarket.ProductRuleSet;
+import de.gribovskij.supdupmarket.ProductShelfVersion;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eugen Gribovskij
+ */
+public class ConcurrentProductShelfTest {
+
+    private static final LocalDate STORE_DATE = LocalDate.of(2024, 3, 1);
+
+    private static final int THREADS = 8;
+
+    @Test
+    public void testEveryProductIsSoldOnce() throws Exception {
+        ConcurrentProductShelf shelf = new ConcurrentProductShelf(4);
+        List<Product> products = createProducts(8, 200, 1);
+        AtomicInteger soldProducts = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                List<Product> restock = products.subList(thread * products.size() / THREADS, (thread + 1) * products.size() / THREADS);
+                futures.add(executor.submit(() -> shelf.addProducts(restock, STORE_DATE)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertEquals(products.size(), shelf.size());
+
+            futures.clear();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (Product product : products) {
+                        if (shelf.removeProduct(product)) {
+                            soldProducts.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(products.size(), soldProducts.get());
+        assertEquals(0, shelf.size());
+        assertTrue(shelf.getStoredProducts().isEmpty());
+    }
+
+    @Test
+    public void testSnapshotsSeeWholeBatches() throws Exception {
+        ConcurrentProductShelf shelf = new ConcurrentProductShelf();
+        int batchSize = 10;
+        List<Product> products = createProducts(8, 50, batchSize);
+        shelf.addProducts(products, STORE_DATE);
+        List<ProductKey> keys = products.stream().map(ProductKey::of).distinct().toList();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> removers = new ArrayList<>();
+            for (int thread = 0; thread < THREADS - 1; thread++) {
+                int firstKey = thread;
+                removers.add(executor.submit(() -> {
+                    for (int index = firstKey; index < keys.size(); index += THREADS - 1) {
+                        assertEquals(batchSize, shelf.removeProducts(keys.get(index)).size());
+                    }
+                }));
+            }
+            Future<?> reader = executor.submit(() -> {
+                int lastSize = Integer.MAX_VALUE;
+                while (lastSize > 0) {
+                    List<Product> snapshot = shelf.getStoredProducts();
+                    assertTrue(snapshot.size() <= lastSize);
+                    Map<ProductKey, Integer> batchSizes = new HashMap<>();
+                    for (Product product : snapshot) {
+                        batchSizes.merge(ProductKey.of(product), 1, Integer::sum);
+                    }
+                    for (int size : batchSizes.values()) {
+                        assertEquals(batchSize, size);
+                    }
+                    lastSize = snapshot.size();
+                }
+            });
+            for (Future<?> remover : removers) {
+                remover.get();
+            }
+            reader.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, shelf.size());
+    }
+
+    @Test
+    public void testSweepRemovesExpiredProductsOfAllStripes() {
+        ConcurrentProductShelf shelf = new ConcurrentProductShelf();
+        List<Product> products = createProducts(8, 20, 1);
+        shelf.addProducts(products, STORE_DATE);
+
+        List<Product> removedProducts = new ArrayList<>();
+        for (LocalDate date = STORE_DATE; !date.isAfter(STORE_DATE.plusDays(40)); date = date.plusDays(1)) {
+            for (Product product : shelf.removeExpiredProducts(date)) {
+                assertEquals(date, product.getUnmarketableDate());
+                removedProducts.add(product);
+            }
+            for (Product product : shelf.getStoredProducts()) {
+                assertTrue(product.isMarketable(date), product + " on " + date);
+            }
+        }
+        assertEquals(products.size(), removedProducts.size() + shelf.size());
+    }
+
+    @Test
+    public void testProductsOfOneGroupUseAllStripes() {
+        ConcurrentProductShelf shelf = new ConcurrentProductShelf(4);
+        shelf.addProducts(createProducts(1, 200, 1), STORE_DATE);
+
+        for (ProductShelfVersion version : shelf.snapshot()) {
+            assertFalse(version.isEmpty());
+        }
+    }
+
+    // Products of several groups with the cheese rules, expiring over the next weeks
+    private static List<Product> createProducts(int groups, int batches, int batchSize) {
+        ProductRuleSet cheeseRules = MarketService.createProductGroups().getProductGroup("Cheese").getProductRule();
+        List<Product> products = new ArrayList<>();
+        for (int group = 0; group < groups; group++) {
+            ProductGroup productGroup = new ProductGroup("Group " + group, "Gruppe " + group, cheeseRules);
+            for (int batch = 0; batch < batches; batch++) {
+                LocalDate expiryDate = STORE_DATE.plusDays(1 + batch % 30);
+                for (int index = 0; index < batchSize; index++) {
+                    products.add(new Product("Product " + batch, 1000, expiryDate, 35 + batch % 20, productGroup.getName(), productGroup));
+                }
+            }
+        }
+        return products;
+    }
+
+}
@@ -0,0 +1,96 @@
+
+import de.gribovskij.supdupmarket.MarketService;
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.ProductGroup;
+import de.gribovskij.supdupmarket.ProductShelf;
+import de.gribovskij.supdupmarket.metrics.Counter;
+import de.gribovskij.supdupmarket.metrics.Histogram;
+import de.gribovskij.supdupmarket.metrics.MarketMetrics;
+import de.gribovskij.supdupmarket.metrics.MetricsRegistry;
+import de.gribovskij.supdupmarket.metrics.TextMetricsExporter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eugen Gribovskij
+ */
+public class MarketMetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        Histogram histogram = new MetricsRegistry().histogram("test.nanos");
+        for (long value = 1; value <= 100000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(100000, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100000, histogram.getMax());
+        assertEquals(50000.5, histogram.getMean(), 0.001);
+        assertEquals(50000, histogram.getP50(), 50000 * 0.035);
+        assertEquals(99000, histogram.getP99(), 99000 * 0.035);
+        assertEquals(100000, histogram.getValueAtPercentile(100));
+        assertEquals(0, new MetricsRegistry().histogram("test.empty").getP90());
+    }
+
+    @Test
+    public void testHistogramSumsAllThreads() throws InterruptedException {
+        Histogram histogram = new MetricsRegistry().histogram("test.nanos");
+        List<Thread> threads = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (long value = 1; value <= 10000; value++) {
+                    histogram.record(value);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(80000, histogram.getCount());
+        assertEquals(5000, histogram.getP50(), 5000 * 0.035);
+        assertEquals(10000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testRegistryReturnsSameMetric() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.counter("test.count");
+        counter.add(3);
+
+        assertSame(counter, registry.counter("test.count"));
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("test.count"));
+        assertEquals("test.count count=3\n", registry.toText());
+    }
+
+    @Test
+    public void testShelfIsInstrumented(@TempDir Path tempDir) throws Exception {
+        LocalDate currentDate = LocalDate.of(2024, 3, 1);
+        ProductGroup cheese = MarketService.createProductGroups().getProductGroup("Cheese");
+        ProductShelf shelf = new ProductShelf(List.of());
+        long rejectedBefore = MarketMetrics.SHELF_REJECTED_PRODUCTS.getCount();
+        long sweepsBefore = MarketMetrics.SHELF_SWEEP_NANOS.getCount();
+
+        shelf.addProduct(new Product("Gouda", 7500, currentDate.plusDays(60), 40, "Cheese", cheese), currentDate);
+        shelf.addProduct(new Product("Alter Gouda", 7500, currentDate.plusDays(60), 10, "Cheese", cheese), currentDate);
+        shelf.removeExpiredProducts(currentDate.plusDays(11));
+
+        assertEquals(rejectedBefore + 1, MarketMetrics.SHELF_REJECTED_PRODUCTS.getCount());
+        assertEquals(sweepsBefore + 1, MarketMetrics.SHELF_SWEEP_NANOS.getCount());
+        assertTrue(MarketMetrics.SHELF_SWEEP_PRODUCTS.getMax() >= 1);
+
+        Path metricsFile = tempDir.resolve("metrics.txt");
+        new TextMetricsExporter(MarketMetrics.REGISTRY, metricsFile, Duration.ofHours(1)).close();
+        assertTrue(Files.readString(metricsFile).contains("\nshelf.rejectedProducts count="));
+    }
+
+}
@@ -1,90 +1,221 @@
-
-import de.gribovskij.supdupmarket.MarketService;
-import de.gribovskij.supdupmarket.Product;
-import de.gribovskij.supdupmarket.ProductGroup;
-import java.time.LocalDate;
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
-
-import java.util.List;
-
-import static org.junit.jupiter.api.Assertions.*;
-
-/**
- * @author Eugen Gribovskij
- */
-public class MarketServiceTest {
-
-    private MarketService marketService;
-
-    @BeforeEach
-    public void setUp() {
-        marketService = new MarketService();
-    }
-
-    @Test
-    public void testProductInitialization() {
-        // Check whether the product groups have been initialized correctly
-        List<ProductGroup> productGroups = marketService.getProductGroups();
-        assertNotNull(productGroups);
-        assertEquals(3, productGroups.size()); // Assumption: Three product groups were initialized
-
-        // Check whether products have been added correctly to the shelves
-        List<Product> storedProducts = marketService.getShelf().getStoredProducts();
-        assertNotNull(storedProducts);
-        assertFalse(storedProducts.isEmpty());
-    }
-
-    @Test
-    public void testStartMarketSimulation() {
-
-        LocalDate currentDate = LocalDate.now();
-        // Start market simulation for 120 days
-        marketService.startMarketSimulation(currentDate, 120);
-
-        // Check if all products were handled correctly after simulation
-        List<Product> storedProducts = marketService.getShelf().getStoredProducts();
-        assertNotNull(storedProducts);
-
-        storedProducts = marketService.getShelf().getStoredProducts();
-        // Test the number of products in the shelf after 120 days
-        assertEquals(3, storedProducts.size()); // Assuming 3 products after simulation
-
-        // Test if specific products with expected attributes are present after simulation
-        boolean cheeseFound = false;
-        boolean wineFound = false;
-        boolean meatFound = false;
-
-        for (Product product : storedProducts) {
-            switch (product.getProductGroupName()) {
-                case "Cheese" -> {
-                    cheeseFound = true;
-                }
-                case "Wine" -> {
-                    wineFound = true;
-                    assertTrue(product.getCurrentQuality(currentDate) >= 1); // Assuming minimum quality for wine
-                    assertTrue(product.getCurrentQuality(currentDate) <= 50); // Assuming maximum quality for wine
-                }
-                case "Meat" -> {
-                    meatFound = true;
-                }
-                default -> {
-                }
-            }
-        }
-
-        assertTrue(wineFound);
-        assertFalse(cheeseFound);
-        assertFalse(meatFound);
-
-    }
-
-    @Test
-    public void testFindProductGroup() {
-        // Test whether the findProductGroup method works correctly
-        ProductGroup cheeseGroup = marketService.findProductGroup("Cheese");
-        assertNotNull(cheeseGroup);
-        assertEquals("Cheese", cheeseGroup.getName());
-    }
-
-}
+
+import de.gribovskij.supdupmarket.MarketService;
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.ProductGroup;
+import de.gribovskij.supdupmarket.csv.CSVProductGenerator;
+import de.gribovskij.supdupmarket.report.ReportSink;
+import de.gribovskij.supdupmarket.snapshot.ShelfSnapshot;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eugen Gribovskij
+ */
+public class MarketServiceTest {
+
+    private MarketService marketService;
+
+    @BeforeEach
+    public void setUp() {
+        marketService = new MarketService();
+    }
+
+    @Test
+    public void testProductInitialization() {
+        // Check whether the product groups have been initialized correctly
+        List<ProductGroup> productGroups = marketService.getProductGroups();
+        assertNotNull(productGroups);
+        assertEquals(3, productGroups.size()); // Assumption: Three product groups were initialized
+
+        // Check whether products have been added correctly to the shelves
+        List<Product> storedProducts = marketService.getShelf().getStoredProducts();
+        assertNotNull(storedProducts);
+        assertFalse(storedProducts.isEmpty());
+    }
+
+    @Test
+    public void testStartMarketSimulation() {
+
+        LocalDate currentDate = LocalDate.now();
+        // Start market simulation for 120 days
+        marketService.startMarketSimulation(currentDate, 120);
+
+        // Check if all products were handled correctly after simulation
+        List<Product> storedProducts = marketService.getShelf().getStoredProducts();
+        assertNotNull(storedProducts);
+
+        storedProducts = marketService.getShelf().getStoredProducts();
+        // Test the number of products in the shelf after 120 days
+        assertEquals(3, storedProducts.size()); // Assuming 3 products after simulation
+
+        // Test if specific products with expected attributes are present after simulation
+        boolean cheeseFound = false;
+        boolean wineFound = false;
+        boolean meatFound = false;
+
+        for (Product product : storedProducts) {
+            switch (product.getProductGroupName()) {
+                case "Cheese" -> {
+                    cheeseFound = true;
+                }
+                case "Wine" -> {
+                    wineFound = true;
+                    assertTrue(product.getCurrentQuality(currentDate) >= 1); // Assuming minimum quality for wine
+                    assertTrue(product.getCurrentQuality(currentDate) <= 50); // Assuming maximum quality for wine
+                }
+                case "Meat" -> {
+                    meatFound = true;
+                }
+                default -> {
+                }
+            }
+        }
+
+        assertTrue(wineFound);
+        assertFalse(cheeseFound);
+        assertFalse(meatFound);
+
+    }
+
+    @Test
+    public void testFindProductGroup() {
+        // Test whether the findProductGroup method works correctly
+        ProductGroup cheeseGroup = marketService.findProductGroup("Cheese");
+        assertNotNull(cheeseGroup);
+        assertEquals("Cheese", cheeseGroup.getName());
+    }
+
+    @Test
+    public void testParallelMarketSimulationMatchesSequential() {
+        LocalDate currentDate = LocalDate.now();
+
+        String sequentialOutput = captureOutput(() -> marketService.startMarketSimulation(currentDate, 120));
+        MarketService parallelMarketService = new MarketService();
+        String parallelOutput = captureOutput(() -> parallelMarketService.startParallelMarketSimulation(currentDate, 120, 4));
+
+        assertEquals(sequentialOutput, parallelOutput);
+        assertEquals(storedProductNames(marketService), storedProductNames(parallelMarketService));
+    }
+
+    @Test
+    public void testParallelMarketSimulationSplitsLargeShelves(@TempDir Path tempDir) throws Exception {
+        LocalDate currentDate = marketService.getStartDate();
+        // Enough products for more parts than threads, so the parts are rendered concurrently
+        CSVProductGenerator generator = CSVProductGenerator.withMarketTemplates(42, currentDate);
+        generator.addProductsToShelf(marketService.getShelf(), 2000, marketService::findProductGroup);
+        MarketService parallelMarketService = new MarketService();
+        generator.addProductsToShelf(parallelMarketService.getShelf(), 2000, parallelMarketService::findProductGroup);
+        assertTrue(parallelMarketService.getShelf().snapshot().split(16).size() >= 16);
+
+        marketService.startMarketSimulation(currentDate, 30, ReportSink.file(tempDir.resolve("sequential.txt")));
+        parallelMarketService.startParallelMarketSimulation(currentDate, 30, 4, ReportSink.file(tempDir.resolve("parallel.txt")));
+
+        assertTrue(marketService.getShelf().size() > 0);
+        assertEquals(Files.readString(tempDir.resolve("sequential.txt")), Files.readString(tempDir.resolve("parallel.txt")));
+        assertEquals(storedProductNames(marketService), storedProductNames(parallelMarketService));
+    }
+
+    @Test
+    public void testMarketSimulationReportFile(@TempDir Path tempDir) throws Exception {
+        LocalDate currentDate = LocalDate.now();
+        Path reportFile = tempDir.resolve("report.txt");
+
+        String consoleOutput = captureOutput(() -> marketService.startMarketSimulation(currentDate, 30));
+        new MarketService().startMarketSimulation(currentDate, 30, ReportSink.file(reportFile));
+        new MarketService().startMarketSimulation(currentDate, 30, ReportSink.compressedFile(tempDir.resolve("report.txt.gz")));
+
+        assertEquals(consoleOutput, Files.readString(reportFile));
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(tempDir.resolve("report.txt.gz")))) {
+            assertEquals(consoleOutput, new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(consoleOutput.startsWith("########## Willkommen im SuperDuperMarkt! ##########\nTag 1 (" + currentDate + "):\n"));
+        assertTrue(consoleOutput.contains(marketService.getShelf().getStoredProducts().get(0).toUserInfo(currentDate.plusDays(28)) + "\n\n"));
+    }
+
+    @Test
+    public void testEventDrivenMarketSimulation() throws Exception {
+        LocalDate currentDate = LocalDate.now();
+
+        marketService.startMarketSimulation(currentDate, 1000, ReportSink.none());
+        MarketService eventDrivenMarketService = new MarketService();
+        int processedEvents = eventDrivenMarketService.startEventDrivenMarketSimulation(currentDate, 1000, ReportSink.none());
+
+        assertEquals(storedProductNames(marketService), storedProductNames(eventDrivenMarketService));
+        assertTrue(processedEvents < 500); // Far less than one evaluation per day and product
+    }
+
+    @Test
+    public void testSnapshotRoundTrip(@TempDir Path tempDir) throws Exception {
+        Path snapshotFile = tempDir.resolve("shelf.snapshot");
+        marketService.writeSnapshot(snapshotFile.toString());
+
+        MarketService restoredMarketService = new MarketService(ShelfSnapshot.read(snapshotFile));
+
+        assertEquals(3, restoredMarketService.getProductGroups().size());
+        List<Product> storedProducts = marketService.getShelf().getStoredProducts();
+        List<Product> restoredProducts = restoredMarketService.getShelf().getStoredProducts();
+        assertEquals(storedProducts, restoredProducts);
+        for (int index = 0; index < storedProducts.size(); index++) {
+            Product product = storedProducts.get(index);
+            Product restoredProduct = restoredProducts.get(index);
+            assertEquals(product.getStoreDate(), restoredProduct.getStoreDate());
+            assertEquals(product.getProductGroup().getName(), restoredProduct.getProductGroup().getName());
+            assertEquals(product.getUnmarketableDate(), restoredProduct.getUnmarketableDate());
+        }
+    }
+
+    @Test
+    public void testApplyProductChanges(@TempDir Path tempDir) throws Exception {
+        LocalDate startDate = marketService.getStartDate();
+        String goudaExpiryDate = startDate.plusDays(60).format(DateTimeFormatter.ofPattern("dd.MM.yyyy"));
+        Path changeFile = tempDir.resolve("changes.csv");
+        Files.writeString(changeFile, "OPERATION,NAME,BASE PRICE,EXPIRY DATE,START QUALITY,PRODUCT GROUP NAME\n"
+                + "UPDATE,Gouda,80.0," + goudaExpiryDate + ",45,Cheese\n"
+                + "REMOVE,Bodegas,,31.12.+999999999,,Wine\n"
+                + "ADD,Emmentaler,60.0," + goudaExpiryDate + ",50,Cheese\n");
+        List<Product> storedProducts = marketService.getShelf().getStoredProducts();
+
+        assertEquals(3, marketService.applyProductChanges(changeFile.toString(), startDate.plusDays(1)));
+
+        List<Product> changedProducts = marketService.getShelf().getStoredProducts();
+        assertEquals(storedProducts.size(), changedProducts.size());
+        assertEquals("Gouda", changedProducts.get(0).getName());
+        assertEquals(8000, changedProducts.get(0).getBasePriceInCents());
+        assertEquals(45, changedProducts.get(0).getStartQuality());
+        assertEquals(startDate, changedProducts.get(0).getStoreDate());
+        assertTrue(changedProducts.stream().noneMatch(product -> product.getName().equals("Bodegas")));
+        assertEquals("Emmentaler", changedProducts.get(changedProducts.size() - 1).getName());
+        assertEquals(startDate.plusDays(1), changedProducts.get(changedProducts.size() - 1).getStoreDate());
+    }
+
+    private static List<String> storedProductNames(MarketService marketService) {
+        return marketService.getShelf().getStoredProducts().stream().map(Product::getName).toList();
+    }
+
+    private static String captureOutput(Runnable simulation) {
+        PrintStream systemOut = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true));
+        try {
+            simulation.run();
+        } finally {
+            System.setOut(systemOut);
+        }
+        return output.toString();
+    }
+
+}
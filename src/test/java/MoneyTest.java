@@ -0,0 +1,40 @@
+
+import de.gribovskij.supdupmarket.Money;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eugen Gribovskij
+ */
+public class MoneyTest {
+
+    @Test
+    public void testConversionRoundsHalfUp() {
+        assertEquals(7500, Money.parseEuros("75"));
+        assertEquals(10, Money.parseEuros("0.1"));
+        assertEquals(123456789, Money.parseEuros("1234567.891"));
+        assertEquals(4006, Money.parseEuros("40.055"));
+        assertEquals(-4006, Money.parseEuros("-40.055"));
+        assertEquals(10, Money.ofEuros(0.1));
+        assertEquals(4006, Money.ofEuros(40.055));
+    }
+
+    @Test
+    public void testPercentOfRoundsHalfUp() {
+        assertEquals(313, Money.percentOf(1250, 25));
+        assertEquals(1, Money.percentOf(5, 10));
+        assertEquals(0, Money.percentOf(4, 10));
+        assertEquals(0, Money.percentOf(1255, 0));
+    }
+
+    @Test
+    public void testFormatting() {
+        assertEquals("75.00", Money.formatEuros(7500));
+        assertEquals("0.05", Money.formatEuros(5));
+        assertEquals("-7.05", Money.formatEuros(-705));
+        assertEquals("-0.05", Money.formatEuros(-5));
+        assertEquals("-7,05", Money.appendEuros(-705, ',', new StringBuilder()).toString());
+    }
+
+}
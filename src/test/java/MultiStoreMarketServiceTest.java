@@ -0,0 +1,141 @@
+
+import de.gribovskij.supdupmarket.MarketService;
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.ProductCatalog;
+import de.gribovskij.supdupmarket.ProductGroup;
+import de.gribovskij.supdupmarket.ProductShelf;
+import de.gribovskij.supdupmarket.csv.CSVProductGenerator;
+import de.gribovskij.supdupmarket.csv.CSVProductGenerator.ProductTemplate;
+import de.gribovskij.supdupmarket.multistore.MarketDayResult;
+import de.gribovskij.supdupmarket.multistore.MultiStoreMarketService;
+import de.gribovskij.supdupmarket.multistore.StoreDayResult;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eugen Gribovskij
+ */
+public class MultiStoreMarketServiceTest {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 3, 1);
+
+    private static final ProductCatalog CATALOG = ProductCatalog.of(MarketService.createProductGroups().getProductGroups());
+
+    @Test
+    public void testShardResultsMatchSingleStores() {
+        int stores = 40;
+        List<ProductShelf> referenceShelves = new ArrayList<>();
+        try (MultiStoreMarketService service = new MultiStoreMarketService(CATALOG, 2)) {
+            for (int store = 0; store < stores; store++) {
+                String storeId = String.format("store-%03d", store);
+                service.addStore(storeId);
+                service.addProducts(storeId, createProducts(store), START_DATE);
+                ProductShelf referenceShelf = new ProductShelf(List.of());
+                referenceShelf.addProducts(createProducts(store), START_DATE);
+                referenceShelves.add(referenceShelf);
+            }
+            assertEquals(stores, service.getStoreIds().size());
+
+            for (LocalDate date = START_DATE; date.isBefore(START_DATE.plusDays(30)); date = date.plusDays(1)) {
+                MarketDayResult dayResult = service.runDay(date);
+
+                long removedProducts = 0;
+                long totalPrice = 0;
+                for (int store = 0; store < stores; store++) {
+                    ProductShelf referenceShelf = referenceShelves.get(store);
+                    removedProducts += referenceShelf.removeExpiredProducts(date).size();
+                    long[] prices = new long[referenceShelf.size()];
+                    referenceShelf.getCurrentPrices(date, prices);
+                    long storePrice = 0;
+                    for (long price : prices) {
+                        storePrice += price;
+                    }
+                    totalPrice += storePrice;
+
+                    StoreDayResult storeResult = dayResult.getStoreResult(String.format("store-%03d", store));
+                    assertEquals(referenceShelf.size(), storeResult.getStoredProducts());
+                    assertEquals(storePrice, storeResult.getTotalPriceInCents(), storeResult.toString());
+                }
+                assertEquals(removedProducts, dayResult.getRemovedProducts());
+                assertEquals(totalPrice, dayResult.getTotalPriceInCents());
+            }
+        }
+    }
+
+    @Test
+    public void testStoresShareTheCatalog() {
+        try (MultiStoreMarketService service = new MultiStoreMarketService(CATALOG, 1)) {
+            service.addStore("north");
+            service.addStore("south");
+            service.addProducts("north", createProducts(1), START_DATE);
+            service.addProducts("south", createProducts(2), START_DATE);
+
+            for (String storeId : service.getStoreIds()) {
+                for (Product product : service.getShelf(storeId).snapshot()) {
+                    assertSame(CATALOG.getProductGroup(product.getProductGroupName()), product.getProductGroup());
+                }
+            }
+            assertSame(service.getShelf("north").getStoredProducts().get(0).getProductGroup(),
+                    service.getShelf("south").getStoredProducts().get(0).getProductGroup());
+            assertThrows(IllegalArgumentException.class, () -> service.addStore("north"));
+            assertThrows(IllegalArgumentException.class, () -> service.getShelf("east"));
+            ProductGroup cheese = CATALOG.getProductGroup("Cheese");
+            assertThrows(IllegalStateException.class, () -> cheese.setProductRule(cheese.getProductRule()));
+        }
+    }
+
+    @Test
+    public void testImportProductsInBatches(@TempDir Path tempDir) throws Exception {
+        CSVProductGenerator generator = new CSVProductGenerator(7, START_DATE, List.of(
+                ProductTemplate.expiring("Cheese", "Kaese", 2, 300, 9000, 5, 100, 20, 60),
+                ProductTemplate.notExpiring("Wine", "Wein", 1, 400, 20000, 10, 50)));
+        String productFile = tempDir.resolve("products.csv").toString();
+        generator.writeProductsToCSV(productFile, 10_000);
+        ProductShelf referenceShelf = new ProductShelf(List.of());
+        generator.addProductsToShelf(referenceShelf, 10_000, CATALOG::getProductGroup);
+
+        try (MultiStoreMarketService service = new MultiStoreMarketService(CATALOG, 1)) {
+            service.addStore("north");
+
+            assertEquals(10_000, service.importProducts("north", productFile, START_DATE));
+            List<Product> storedProducts = service.getShelf("north").getStoredProducts();
+            List<Product> referenceProducts = referenceShelf.getStoredProducts();
+            assertEquals(referenceProducts.size(), storedProducts.size());
+            for (int index = 0; index < storedProducts.size(); index++) {
+                assertEquals(referenceProducts.get(index).getName(), storedProducts.get(index).getName());
+            }
+        }
+    }
+
+    @Test
+    public void testRunDayAfterCloseFails() {
+        MultiStoreMarketService service = new MultiStoreMarketService(CATALOG, 1);
+        for (int store = 0; store < 10; store++) {
+            service.addStore("store-" + store);
+            service.addProducts("store-" + store, createProducts(store), START_DATE);
+        }
+        assertEquals(10, service.runDay(START_DATE).getStoreResults().size());
+
+        service.close();
+
+        assertThrows(IllegalStateException.class, () -> service.runDay(START_DATE.plusDays(1)));
+    }
+
+    private static List<Product> createProducts(int store) {
+        List<Product> products = new ArrayList<>();
+        for (int index = 0; index < 50 + store; index++) {
+            String group = index % 3 == 0 ? "Wine" : "Cheese";
+            LocalDate expiryDate = group.equals("Wine") ? LocalDate.MAX : START_DATE.plusDays(5 + (index * 7 + store) % 40);
+            products.add(new Product("Product " + index, 500 + index * 13L, expiryDate, 31 + (index + store) % 40, group,
+                    CATALOG.getProductGroup(group)));
+        }
+        return products;
+    }
+
+}
@@ -0,0 +1,303 @@
+
+import de.gribovskij.supdupmarket.ColumnarProductShelf;
+import de.gribovskij.supdupmarket.MarketService;
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.ProductGroup;
+import de.gribovskij.supdupmarket.ProductGroupRegistry;
+import de.gribovskij.supdupmarket.ProductQualityChange;
+import de.gribovskij.supdupmarket.ProductRuleSet;
+import de.gribovskij.supdupmarket.ProductShelf;
+import de.gribovskij.supdupmarket.ProductShelfVersion;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eugen Gribovskij
+ */
+public class ProductShelfTest {
+
+    private MarketService marketService;
+
+    @BeforeEach
+    public void setUp() {
+        marketService = new MarketService();
+    }
+
+    @Test
+    public void testRemoveExpiredProductsMatchesDailyCheck() {
+        ProductShelf shelf = marketService.getShelf();
+        LocalDate currentDate = marketService.getStartDate();
+
+        for (int day = 0; day < 400; day++) {
+            List<Product> expected = new ArrayList<>();
+            for (Product product : shelf.getStoredProducts()) {
+                if (!product.isMarketable(currentDate)) {
+                    expected.add(product);
+                }
+            }
+
+            List<Product> removed = shelf.removeExpiredProducts(currentDate);
+
+            assertEquals(expected, removed, "Removed products differ on " + currentDate);
+            for (Product product : shelf.getStoredProducts()) {
+                assertTrue(product.isMarketable(currentDate));
+            }
+            currentDate = currentDate.plusDays(1);
+        }
+    }
+
+    @Test
+    public void testRemoveProduct() {
+        ProductShelf shelf = marketService.getShelf();
+        Product product = shelf.getStoredProducts().get(0);
+        int storedProducts = shelf.getStoredProducts().size();
+
+        shelf.removeProduct(product);
+
+        assertEquals(storedProducts - 1, shelf.getStoredProducts().size());
+        LocalDate farFuture = marketService.getStartDate().plusYears(100);
+        assertFalse(shelf.removeExpiredProducts(farFuture).contains(product));
+    }
+
+    @Test
+    public void testShelfRejectsUnstoredProducts() {
+        ProductGroup cheese = marketService.findProductGroup("Cheese");
+        Product product = new Product("Gouda", 7500, marketService.getStartDate().plusDays(60), 40, "Cheese", cheese);
+
+        assertThrows(IllegalArgumentException.class, () -> new ProductShelf(List.of(product)));
+
+        product.setStoreDate(marketService.getStartDate());
+        assertEquals(List.of(product), new ProductShelf(List.of(product)).getStoredProducts());
+    }
+
+    @Test
+    public void testColumnarShelfMatchesProductShelf() {
+        ProductShelf shelf = marketService.getShelf();
+        ProductGroupRegistry productGroups = marketService.getProductGroupRegistry();
+        ColumnarProductShelf columnarShelf = new ColumnarProductShelf(productGroups);
+        LocalDate currentDate = marketService.getStartDate();
+        for (Product product : shelf.getStoredProducts()) {
+            columnarShelf.addProduct(product.getName(), product.getBasePriceInCents(), product.getExpiryDate(),
+                    product.getStartQuality(), productGroups.getId(product.getProductGroupName()), currentDate);
+        }
+
+        for (int day = 0; day < 200; day++) {
+            // The columnar shelf materializes removed products as new products with new ids
+            assertEquals(describe(shelf.removeExpiredProducts(currentDate)), describe(columnarShelf.removeExpiredProducts(currentDate)));
+
+            List<Product> storedProducts = shelf.getStoredProducts();
+            long[] prices = new long[columnarShelf.size()];
+            columnarShelf.getCurrentPrices(currentDate, prices);
+            assertEquals(storedProducts.size(), columnarShelf.size());
+            for (int index = 0; index < storedProducts.size(); index++) {
+                assertEquals(storedProducts.get(index).getCurrentPriceInCents(currentDate), prices[index]);
+                assertEquals(storedProducts.get(index).getCurrentQuality(currentDate), columnarShelf.getCurrentQuality(index, currentDate));
+            }
+            currentDate = currentDate.plusDays(1);
+        }
+    }
+
+    @Test
+    public void testRuleSetChangesMoveRemovalDates() {
+        ProductShelf shelf = marketService.getShelf();
+        ProductGroupRegistry productGroups = marketService.getProductGroupRegistry();
+        ColumnarProductShelf columnarShelf = new ColumnarProductShelf(productGroups);
+        LocalDate currentDate = marketService.getStartDate();
+        for (Product product : shelf.getStoredProducts()) {
+            columnarShelf.addProduct(product, currentDate);
+        }
+        ProductGroup cheese = marketService.findProductGroup("Cheese");
+        Product gouda = shelf.getStoredProducts().get(0);
+
+        for (int day = 0; day < 200; day++) {
+            if (day == 5) {
+                // Cheese stays marketable longer than it was indexed for
+                cheese.setProductRule(new ProductRuleSet(true, ProductQualityChange.DECREASE, true, 1, 10, 100, 1, false, 0));
+            }
+            if (day == 10) {
+                // Removed under its new removal date, not the indexed one
+                shelf.removeProduct(gouda);
+                columnarShelf.removeProduct(gouda);
+            }
+            if (day == 20) {
+                // Cheese leaves the shelf earlier than it was indexed for
+                cheese.setProductRule(new ProductRuleSet(true, ProductQualityChange.DECREASE, true, 2, 35, 100, 1, false, 0));
+            }
+            List<Product> expected = new ArrayList<>();
+            for (Product product : shelf.getStoredProducts()) {
+                if (!product.isMarketable(currentDate)) {
+                    expected.add(product);
+                }
+            }
+
+            assertEquals(expected, shelf.removeExpiredProducts(currentDate), "Removed products differ on " + currentDate);
+            // The columnar shelf fills the index of a removed product with its last product
+            assertEquals(new HashSet<>(expected), new HashSet<>(columnarShelf.removeExpiredProducts(currentDate)));
+            for (Product product : shelf.getStoredProducts()) {
+                assertTrue(product.isMarketable(currentDate));
+            }
+            currentDate = currentDate.plusDays(1);
+        }
+
+        // A product stored twice is rejected before its store date is changed
+        Product storedProduct = shelf.getStoredProducts().get(0);
+        LocalDate storeDate = storedProduct.getStoreDate();
+        assertThrows(IllegalArgumentException.class, () -> shelf.addProduct(storedProduct, storeDate.plusDays(1)));
+        assertEquals(storeDate, storedProduct.getStoreDate());
+    }
+
+    @Test
+    public void testColumnarShelfKeepsProductIds() {
+        ColumnarProductShelf columnarShelf = new ColumnarProductShelf(marketService.getProductGroupRegistry());
+        ProductGroup cheese = marketService.findProductGroup("Cheese");
+        LocalDate currentDate = marketService.getStartDate();
+        Product product = new Product("Gouda", 7500, currentDate.plusDays(60), 40, "Cheese", cheese);
+        columnarShelf.addProduct(product, currentDate);
+        columnarShelf.addProduct("Brie", 900, currentDate.plusDays(30), 50, cheese, currentDate);
+
+        List<Product> storedProducts = columnarShelf.getStoredProducts();
+
+        assertEquals(product, storedProducts.get(0));
+        assertEquals(storedProducts, columnarShelf.getStoredProducts());
+        assertEquals(storedProducts.get(1), columnarShelf.getProductView(1).toProduct());
+        Product nextProduct = new Product("Edamer", 800, currentDate.plusDays(30), 50, "Cheese", cheese);
+        assertTrue(nextProduct.getId() > storedProducts.get(1).getId());
+    }
+
+    @Test
+    public void testColumnarShelfRemovesProductById() {
+        ColumnarProductShelf columnarShelf = new ColumnarProductShelf(marketService.getProductGroupRegistry());
+        ProductGroup cheese = marketService.findProductGroup("Cheese");
+        LocalDate currentDate = marketService.getStartDate();
+        Product first = new Product("Gouda", 7500, currentDate.plusDays(60), 40, "Cheese", cheese);
+        Product second = new Product("Gouda", 7500, currentDate.plusDays(60), 40, "Cheese", cheese);
+        Product brie = new Product("Brie", 900, currentDate.plusDays(30), 50, "Cheese", cheese);
+        columnarShelf.addProduct(first, currentDate);
+        columnarShelf.addProduct(second, currentDate);
+        columnarShelf.addProduct(brie, currentDate);
+
+        assertTrue(columnarShelf.removeProduct(second));
+        assertFalse(columnarShelf.removeProduct(second));
+
+        assertEquals(List.of(first, brie), columnarShelf.getStoredProducts());
+        assertTrue(columnarShelf.removeProduct(first));
+        assertEquals(List.of(brie), columnarShelf.getStoredProducts());
+        assertThrows(IllegalArgumentException.class, () -> columnarShelf.addProduct(brie, currentDate));
+    }
+
+    @Test
+    public void testColumnarViewSeesRuleSetChanges() {
+        ColumnarProductShelf columnarShelf = new ColumnarProductShelf(marketService.getProductGroupRegistry());
+        ProductGroup cheese = marketService.findProductGroup("Cheese");
+        LocalDate currentDate = marketService.getStartDate();
+        columnarShelf.addProduct("Gouda", 7500, currentDate.plusDays(60), 40, cheese, currentDate);
+        assertTrue(columnarShelf.getProductView(0).isMarketable(currentDate.plusDays(5)));
+
+        // The quality of the product is below the new boundary, before any sweep
+        cheese.setProductRule(new ProductRuleSet(true, ProductQualityChange.DECREASE, true, 1, 45, 100, 1, false, 0));
+
+        assertFalse(columnarShelf.getProductView(0).isMarketable(currentDate.plusDays(5)));
+        assertEquals(1, columnarShelf.removeExpiredProducts(currentDate.plusDays(1)).size());
+    }
+
+    @Test
+    public void testProductLookupById() {
+        ProductShelf shelf = marketService.getShelf();
+        Product product = shelf.getStoredProducts().get(1);
+
+        assertSame(product, shelf.getProduct(product.getId()));
+        assertSame(product, shelf.removeProduct(product.getId()));
+        assertNull(shelf.getProduct(product.getId()));
+        assertNull(shelf.removeProduct(product.getId()));
+    }
+
+    @Test
+    public void testBatchPricesMatchProductPrices() {
+        ProductShelf shelf = marketService.getShelf();
+        LocalDate currentDate = marketService.getStartDate();
+        long[] prices = new long[shelf.size()];
+        // Off heap, with a header before the prices
+        LongBuffer directPrices = ByteBuffer.allocateDirect((shelf.size() + 3) * Long.BYTES).asLongBuffer();
+        for (int day = 0; day < 100; day++) {
+            if (day == 50) {
+                ProductGroup cheese = marketService.findProductGroup("Cheese");
+                cheese.setProductRule(new ProductRuleSet(true, ProductQualityChange.DECREASE, true, 2, 10, 100, 1, true, 20));
+            }
+            shelf.removeExpiredProducts(currentDate);
+
+            assertEquals(shelf.size(), shelf.getCurrentPrices(currentDate, prices));
+            directPrices.clear().position(3);
+            assertEquals(shelf.size(), shelf.getCurrentPrices(currentDate, directPrices));
+            assertEquals(3 + shelf.size(), directPrices.position());
+            List<Product> storedProducts = shelf.getStoredProducts();
+            for (int index = 0; index < storedProducts.size(); index++) {
+                assertEquals(storedProducts.get(index).getCurrentPriceInCents(currentDate), prices[index], storedProducts.get(index) + " on " + currentDate);
+                assertEquals(prices[index], directPrices.get(3 + index));
+            }
+            currentDate = currentDate.plusDays(1);
+        }
+    }
+
+    @Test
+    public void testSnapshotsStayUnchanged() {
+        ProductGroup group = marketService.findProductGroup("Cheese");
+        LocalDate currentDate = marketService.getStartDate();
+        ProductShelf shelf = new ProductShelf(List.of());
+        List<Product> expectedProducts = new ArrayList<>();
+        List<ProductShelfVersion> snapshots = new ArrayList<>();
+        List<List<Product>> expectedSnapshots = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(42);
+
+        for (int step = 0; step < 20_000; step++) {
+            int operation = random.nextInt(10);
+            if (operation < 5 || expectedProducts.isEmpty()) {
+                Product product = new Product("Gouda", 7500, currentDate.plusDays(60), 40, "Cheese", group);
+                shelf.addProduct(product, currentDate);
+                expectedProducts.add(product);
+            } else if (operation < 9) {
+                Product product = expectedProducts.remove(random.nextInt(expectedProducts.size()));
+                shelf.removeProduct(product);
+            } else {
+                int index = random.nextInt(expectedProducts.size());
+                Product product = new Product("Gouda", 8000, currentDate.plusDays(60), 40, "Cheese", group);
+                assertTrue(shelf.replaceProduct(expectedProducts.get(index), product, currentDate));
+                expectedProducts.set(index, product);
+            }
+            if (step % 1000 == 0) {
+                snapshots.add(shelf.snapshot());
+                expectedSnapshots.add(List.copyOf(expectedProducts));
+            }
+        }
+        snapshots.add(shelf.snapshot());
+        expectedSnapshots.add(List.copyOf(expectedProducts));
+
+        for (int index = 0; index < snapshots.size(); index++) {
+            assertEquals(expectedSnapshots.get(index), snapshots.get(index).toList());
+            assertEquals(expectedSnapshots.get(index).size(), snapshots.get(index).size());
+            List<Product> splitProducts = new ArrayList<>();
+            for (Iterable<Product> part : snapshots.get(index).split(8)) {
+                part.forEach(splitProducts::add);
+            }
+            assertEquals(expectedSnapshots.get(index), splitProducts);
+        }
+        assertTrue(snapshots.get(snapshots.size() - 1).getVersion() > snapshots.get(0).getVersion());
+        assertEquals(expectedProducts, shelf.getStoredProducts());
+    }
+
+    private static List<String> describe(List<Product> products) {
+        return products.stream()
+                .map(product -> product.getName() + "|" + product.getBasePriceInCents() + "|" + product.getExpiryDate()
+                + "|" + product.getStartQuality() + "|" + product.getStoreDate())
+                .toList();
+    }
+
+}
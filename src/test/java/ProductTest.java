@@ -0,0 +1,126 @@
+
+import de.gribovskij.supdupmarket.MarketService;
+import de.gribovskij.supdupmarket.Money;
+import de.gribovskij.supdupmarket.Product;
+import de.gribovskij.supdupmarket.ProductDayEvaluation;
+import de.gribovskij.supdupmarket.ProductGroup;
+import de.gribovskij.supdupmarket.ProductQualityChange;
+import de.gribovskij.supdupmarket.ProductRuleSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eugen Gribovskij
+ */
+public class ProductTest {
+
+    private static final LocalDate STORE_DATE = LocalDate.of(2024, 3, 1);
+
+    @Test
+    public void testUnmarketableDateMatchesDailyCheck() {
+        // The rules of the market and a few more decreasing ones
+        List<ProductRuleSet> ruleSets = new ArrayList<>();
+        for (ProductGroup marketGroup : MarketService.createProductGroups().getProductGroups()) {
+            ruleSets.add(marketGroup.getProductRule());
+        }
+        ruleSets.add(new ProductRuleSet(true, ProductQualityChange.DECREASE, false, 3, 10, 100, 4, true, 10));
+        ruleSets.add(new ProductRuleSet(false, ProductQualityChange.DECREASE, false, 2, 5, 100, 7, false, 0));
+
+        for (ProductRuleSet ruleSet : ruleSets) {
+            ProductGroup group = new ProductGroup("Group", "Gruppe", ruleSet);
+            for (int startQuality = 0; startQuality <= 60; startQuality += 3) {
+                for (int expiryDays = 0; expiryDays <= 90; expiryDays += 13) {
+                    LocalDate expiryDate = ruleSet.isExpiring() ? STORE_DATE.plusDays(expiryDays) : LocalDate.MAX;
+                    Product product = new Product("Product", 1000, expiryDate, startQuality, "Group", group);
+                    product.setStoreDate(STORE_DATE);
+
+                    assertEquals(probeUnmarketableDate(product), product.getUnmarketableDate(), product.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDayEvaluationIsReusedAndInvalidated() {
+        ProductGroup group = MarketService.createProductGroups().getProductGroup("Cheese");
+        Product product = new Product("Gouda", 7500, STORE_DATE.plusDays(60), 40, "Cheese", group);
+        product.setStoreDate(STORE_DATE);
+
+        ProductDayEvaluation evaluation = product.evaluate(STORE_DATE.plusDays(5));
+        assertSame(evaluation, product.evaluate(STORE_DATE.plusDays(5)));
+        assertEquals(35, evaluation.getQuality());
+        assertEquals(7850, evaluation.getPriceInCents());
+        assertTrue(evaluation.isMarketable());
+
+        ProductDayEvaluation nextDayEvaluation = product.evaluate(STORE_DATE.plusDays(6));
+        assertNotSame(evaluation, nextDayEvaluation);
+        assertEquals(34, nextDayEvaluation.getQuality());
+
+        group.setProductRule(new ProductRuleSet(true, ProductQualityChange.DECREASE, true, 2, 30, 100, 1, false, 0));
+        assertEquals(28, product.getCurrentQuality(STORE_DATE.plusDays(6)));
+        assertFalse(product.isMarketable(STORE_DATE.plusDays(6)));
+    }
+
+    @Test
+    public void testUserInfoFormatsPricesLikeTheDefaultLocale() {
+        ProductGroup group = MarketService.createProductGroups().getProductGroup("Wine");
+        Product product = new Product("Product", 7505, LocalDate.MAX, 10, "Wine", group);
+        product.setStoreDate(STORE_DATE);
+
+        String userInfo = product.toUserInfo(STORE_DATE);
+        assertTrue(userInfo.contains("Grundpreis: " + String.format("%.2f", 75.05) + " Euro\n"), userInfo);
+        assertTrue(userInfo.contains("Aktueller Tagespreis: " + String.format("%.2f", 75.05) + " Euro\n"), userInfo);
+    }
+
+    @Test
+    public void testCompiledRulesMatchRuleDefinition() {
+        for (ProductQualityChange qualityChange : ProductQualityChange.values()) {
+            for (int flags = 0; flags < 4; flags++) {
+                boolean dailyPrice = (flags & 1) != 0;
+                boolean expiryDiscount = (flags & 2) != 0;
+                ProductRuleSet ruleSet = new ProductRuleSet(true, qualityChange, dailyPrice, 2, 10, 50, 3, expiryDiscount, 25);
+                for (int days = 0; days < 40; days++) {
+                    int intervals = qualityChange == ProductQualityChange.UNCHANGING ? 0 : days / 3;
+                    int quality = ruleSet.getQualityAfterDays(30, days);
+                    assertEquals(ruleSet.getQuality(30, intervals), quality);
+                    for (long daysUntilExpiry = -1; daysUntilExpiry <= 3; daysUntilExpiry++) {
+                        assertEquals(referencePrice(ruleSet, 1255, quality, daysUntilExpiry), ruleSet.getPrice(1255, quality, daysUntilExpiry),
+                                qualityChange + " daily=" + dailyPrice + " discount=" + expiryDiscount + " days=" + daysUntilExpiry);
+                    }
+                }
+            }
+        }
+    }
+
+    // The price rule in cents as defined before the rule sets were compiled
+    private static long referencePrice(ProductRuleSet ruleSet, long basePrice, int quality, long daysUntilExpiry) {
+        long basePriceWithQualityFactor = basePrice + 10 * quality;
+        long discountPriceFactor = Money.percentOf(basePriceWithQualityFactor, ruleSet.getExpiryDiscountInPercent());
+        boolean isOneDayBeforeExpiry = daysUntilExpiry == 1;
+
+        if (ruleSet.isDailyPrice() && ruleSet.isExpiryDiscount() && isOneDayBeforeExpiry) {
+            return basePriceWithQualityFactor - discountPriceFactor;
+        } else if (ruleSet.isExpiryDiscount() && isOneDayBeforeExpiry || daysUntilExpiry == 0) {
+            return basePrice - discountPriceFactor;
+        } else if (ruleSet.isDailyPrice()) {
+            return basePriceWithQualityFactor;
+        }
+        return basePrice;
+    }
+
+    private static LocalDate probeUnmarketableDate(Product product) {
+        LocalDate checkDate = STORE_DATE;
+        for (int day = 0; day < 1000; day++) {
+            if (!product.isMarketable(checkDate)) {
+                return checkDate;
+            }
+            checkDate = checkDate.plusDays(1);
+        }
+        return LocalDate.MAX;
+    }
+
+}